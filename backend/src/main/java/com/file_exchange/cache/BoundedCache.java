@@ -0,0 +1,280 @@
+package com.file_exchange.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded, concurrent, weight-aware cache with W-TinyLFU eviction.
+ * New entries land in a small LRU window (1% of the weight budget); entries leaving the window are
+ * admitted into the main LRU region only if a frequency sketch says they are used more often than the
+ * entry they would evict. One-hit wonders (a scan over old files, a burst of 404s) therefore cannot flush
+ * the hot set the way they would in a plain LRU.
+ *
+ * Reads are lock-free: the lookup is a ConcurrentHashMap get, and the LRU position is only refreshed when
+ * the eviction lock is free, so a busy cache drops some recency updates instead of serializing readers.
+ * Writes, invalidations and eviction run under the lock.
+ */
+public class BoundedCache<K, V> {
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final FrequencySketch sketch;
+    private final ToLongFunction<? super V> weigher;
+    private final long windowMax;
+    private final long mainMax;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AccessList<K, V> window = new AccessList<>();
+    private final AccessList<K, V> main = new AccessList<>();
+    private long windowWeight = 0;
+    private long mainWeight = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    // Bumped by every invalidation; a value loaded before an invalidation is not cached after it
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * @param maxWeight       total weight the cache may hold
+     * @param expectedEntries how many entries are expected at full weight, sizes the frequency sketch
+     * @param weigher         weight of one value, e.g. its approximate size in bytes
+     */
+    public BoundedCache(long maxWeight, long expectedEntries, ToLongFunction<? super V> weigher) {
+        if (maxWeight < 1) {
+            throw new IllegalArgumentException("maxWeight must be positive");
+        }
+        this.weigher = weigher;
+        this.windowMax = maxWeight / 100;
+        this.mainMax = maxWeight - windowMax;
+        this.sketch = new FrequencySketch(expectedEntries);
+    }
+
+    /**
+     * A cache bounded by entry count rather than weight.
+     */
+    public static <K, V> BoundedCache<K, V> ofSize(long maxEntries) {
+        return new BoundedCache<>(maxEntries, maxEntries, value -> 1);
+    }
+
+    public V getIfPresent(K key) {
+        sketch.increment(key);
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        if (lock.tryLock()) {
+            try {
+                if (node.owner != null) {
+                    node.owner.moveToTail(node);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    /**
+     * Returns the cached value, or loads and caches it. Null results are returned but not cached.
+     * Concurrent misses on the same key may each call the loader.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        long stamp = invalidations.get();
+        value = loader.apply(key);
+        if (value != null) {
+            lock.lock();
+            try {
+                // Skip the put if the key may have been invalidated while the value was loading
+                if (invalidations.get() == stamp) {
+                    putLocked(key, value);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            putLocked(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            invalidations.incrementAndGet();
+            Node<K, V> node = data.remove(key);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            invalidations.incrementAndGet();
+            data.clear();
+            window.clear();
+            main.clear();
+            windowWeight = 0;
+            mainWeight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public CacheStats stats() {
+        lock.lock();
+        try {
+            return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), data.size(), windowWeight + mainWeight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void putLocked(K key, V value) {
+        Node<K, V> existing = data.remove(key);
+        if (existing != null) {
+            unlink(existing);
+        }
+        long weight = Math.max(1, weigher.applyAsLong(value));
+        if (weight > mainMax) {
+            // Could never be admitted - caching it would only evict everything else
+            return;
+        }
+        Node<K, V> node = new Node<>(key, value, weight);
+        data.put(key, node);
+        window.addTail(node);
+        windowWeight += weight;
+
+        while (windowWeight > windowMax) {
+            Node<K, V> candidate = window.head;
+            window.unlink(candidate);
+            windowWeight -= candidate.weight;
+            admit(candidate);
+        }
+    }
+
+    /**
+     * TinyLFU admission: the window's victim only enters the main region if it is more popular
+     * than the main region's LRU entries it would displace.
+     */
+    private void admit(Node<K, V> candidate) {
+        while (mainWeight + candidate.weight > mainMax) {
+            Node<K, V> victim = main.head;
+            if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evict(victim);
+            } else {
+                data.remove(candidate.key, candidate);
+                evictions.increment();
+                return;
+            }
+        }
+        main.addTail(candidate);
+        mainWeight += candidate.weight;
+    }
+
+    private void evict(Node<K, V> node) {
+        data.remove(node.key, node);
+        unlink(node);
+        evictions.increment();
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.owner == window) {
+            windowWeight -= node.weight;
+        } else if (node.owner == main) {
+            mainWeight -= node.weight;
+        }
+        if (node.owner != null) {
+            node.owner.unlink(node);
+        }
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final long weight;
+        AccessList<K, V> owner;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, long weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Intrusive LRU list, head is the least recently used entry. Guarded by the cache lock.
+     */
+    private static final class AccessList<K, V> {
+        Node<K, V> head;
+        Node<K, V> tail;
+
+        void addTail(Node<K, V> node) {
+            node.owner = this;
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        void unlink(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.owner = null;
+        }
+
+        void moveToTail(Node<K, V> node) {
+            if (tail != node) {
+                unlink(node);
+                addTail(node);
+            }
+        }
+
+        void clear() {
+            // Readers may still hold these nodes, they must not look linked anymore
+            for (Node<K, V> node = head; node != null; ) {
+                Node<K, V> next = node.next;
+                node.prev = null;
+                node.next = null;
+                node.owner = null;
+                node = next;
+            }
+            head = null;
+            tail = null;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.file_exchange.cache;
+
+/**
+ * Point-in-time counters of a {@link BoundedCache}.
+ */
+public record CacheStats(long hits, long misses, long evictions, long size, long weight) {
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+}
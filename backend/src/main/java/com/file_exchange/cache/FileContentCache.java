@@ -0,0 +1,87 @@
+package com.file_exchange.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+
+/**
+ * Keeps the bodies of hot small files in direct (off-heap) buffers, so a repeated download is written
+ * from memory to the socket without a stat, an open or a read, and without growing the Java heap.
+ * Eviction is the frequency-aware policy of {@link BoundedCache}, weighted by file size against a
+ * fixed byte budget. Direct memory counts against -XX:MaxDirectMemorySize, keep the budget below it.
+ */
+public class FileContentCache {
+    // Larger files gain little over sendfile and would crowd out many small ones
+    public static final long MAX_ENTRY_BYTES = 1024 * 1024;
+    private static final long DEFAULT_BUDGET_MB = 64;
+
+    private final BoundedCache<Path, CachedFile> cache;
+
+    /**
+     * A cached file. The buffer is read-only and shared, writers must use duplicate().
+     */
+    public record CachedFile(ByteBuffer content, Instant lastModified) {
+        public long size() {
+            return content.capacity();
+        }
+    }
+
+    public FileContentCache(long maxBytes) {
+        // Sketch sized for a budget full of 16KB files
+        this.cache = new BoundedCache<>(maxBytes, Math.max(64, maxBytes / (16 * 1024)), CachedFile::size);
+    }
+
+    /**
+     * Budget in megabytes from FILE_CACHE_MB (64 by default). Returns null when it is 0, which disables the cache.
+     */
+    public static FileContentCache fromEnv() {
+        String value = System.getenv("FILE_CACHE_MB");
+        long megabytes = value == null || value.isBlank() ? DEFAULT_BUDGET_MB : Long.parseLong(value.trim());
+        return megabytes > 0 ? new FileContentCache(megabytes * 1024 * 1024) : null;
+    }
+
+    /**
+     * Returns the cached file, reading it into memory on a miss.
+     * Returns null when the file is larger than MAX_ENTRY_BYTES or cannot be read; the caller serves it from disk.
+     */
+    public CachedFile get(Path path) {
+        return cache.get(path, FileContentCache::load);
+    }
+
+    /**
+     * Must be called whenever the file at path is deleted or replaced.
+     */
+    public void invalidate(Path path) {
+        cache.invalidate(path);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static CachedFile load(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long size = channel.size();
+            if (!attributes.isRegularFile() || size > MAX_ENTRY_BYTES) {
+                return null;
+            }
+            ByteBuffer content = ByteBuffer.allocateDirect((int) size);
+            while (content.hasRemaining()) {
+                if (channel.read(content) < 0) {
+                    // Truncated while reading, the next request will see the new file
+                    return null;
+                }
+            }
+            content.flip();
+            return new CachedFile(content.asReadOnlyBuffer(), attributes.lastModifiedTime().toInstant());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
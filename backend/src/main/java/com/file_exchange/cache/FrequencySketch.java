@@ -0,0 +1,90 @@
+package com.file_exchange.cache;
+
+/**
+ * Approximate access counts for TinyLFU admission: a count-min sketch of 4-bit counters, four per key.
+ * Every sampleSize increments all counters are halved, so the sketch follows recent popularity.
+ * Updates are not synchronized - a lost increment only makes an estimate slightly lower.
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {
+            0x97cb3127L, 0xc2b2ae35L, 0x85ebca6bL, 0x9e3779b9L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    // Number of counters - 1, counters are packed 16 per long
+    private final int counterMask;
+    private final int sampleSize;
+    private int additions = 0;
+
+    FrequencySketch(long expectedEntries) {
+        int counters = ceilingPowerOfTwo((int) Math.min(Math.max(expectedEntries, 16) * 4, 1 << 26));
+        this.table = new long[counters / 16];
+        this.counterMask = counters - 1;
+        this.sampleSize = (int) Math.min(Math.max(expectedEntries, 16) * 10, Integer.MAX_VALUE);
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int min = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            min = Math.min(min, counter(indexOf(hash, i)));
+        }
+        return min;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            added |= incrementAt(indexOf(hash, i));
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private int counter(int index) {
+        return (int) ((table[index >>> 4] >>> ((index & 15) << 2)) & 0xF);
+    }
+
+    private boolean incrementAt(int index) {
+        int slot = index >>> 4;
+        int shift = (index & 15) << 2;
+        if (((table[slot] >>> shift) & 0xF) == MAX_COUNT) {
+            return false;
+        }
+        table[slot] += 1L << shift;
+        return true;
+    }
+
+    /**
+     * Halves every counter (the "aging" step of TinyLFU).
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions = additions / 2;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & counterMask;
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 17;
+        h *= 0xed5ad4bb;
+        h ^= h >>> 11;
+        h *= 0xac4c1b51;
+        h ^= h >>> 15;
+        return h;
+    }
+
+    private static int ceilingPowerOfTwo(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+}
@@ -1,34 +1,51 @@
 package com.file_exchange.cli;
 
 
+import com.file_exchange.cache.FileContentCache;
 import com.file_exchange.controllers.FileController;
+import com.file_exchange.controllers.UploadController;
 import com.file_exchange.controllers.UserController;
+import com.file_exchange.db.ConnectionPool;
 import com.file_exchange.db.DatabaseInitializer;
+import com.file_exchange.db.WriteBatcher;
+import com.file_exchange.repository.CachingFileRepository;
 import com.file_exchange.repository.FileRepository;
+import com.file_exchange.repository.UploadSessionRepository;
 import com.file_exchange.repository.UserRepository;
 import com.file_exchange.server.CustomWebServer;
+import com.file_exchange.server.ServerMode;
 import com.file_exchange.services.FileService;
+import com.file_exchange.services.UploadService;
 import com.file_exchange.services.UserService;
+import com.file_exchange.storage.StorageCodec;
 
 import java.lang.reflect.InvocationTargetException;
 
 public class Main {
     public static void main(String[] args) throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
         try {
-            DatabaseInitializer dbInitializer = new DatabaseInitializer();
+            ConnectionPool connectionPool = ConnectionPool.forCores("jdbc:sqlite:users.db");
+            DatabaseInitializer dbInitializer = new DatabaseInitializer(connectionPool);
             dbInitializer.initialize();
 
-            UserRepository userRepository = new UserRepository();
-            FileRepository fileRepository = new FileRepository();
+            UserRepository userRepository = new UserRepository(connectionPool);
+            WriteBatcher writeBatcher = new WriteBatcher(connectionPool);
+            // File metadata is cached in front of SQLite (8MB)
+            FileRepository fileRepository = new CachingFileRepository(connectionPool, writeBatcher, 8L * 1024 * 1024);
             UserService userService = new UserService(userRepository);
-            FileService fileService = new FileService(fileRepository);
+            // Hot small files are served from off-heap memory, FILE_CACHE_MB=0 turns it off
+            FileService fileService = new FileService(fileRepository, FileContentCache.fromEnv(), StorageCodec.fromEnv());
+            UploadService uploadService = new UploadService(new UploadSessionRepository(connectionPool), fileService);
 
             UserController userController = new UserController(userService);
             FileController fileController = new FileController(fileService);
+            UploadController uploadController = new UploadController(uploadService);
 
-            CustomWebServer virtualServer = new CustomWebServer(8080, 200, true);
+            CustomWebServer virtualServer = new CustomWebServer(8080, 200, true, ServerMode.fromEnv(),
+                    fileService.getStagingDir());
             virtualServer.registerController(userController);
             virtualServer.registerController(fileController);
+            virtualServer.registerController(uploadController);
 
             virtualServer.start();
             System.out.println("CustomWebServer started on http://localhost:8080");
@@ -36,6 +53,8 @@ public class Main {
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 System.out.println("Shutting down server...");
                 virtualServer.stop();
+                writeBatcher.close();
+                connectionPool.close();
             }));
             System.out.println("Server is running. Press Ctrl+C to stop.");
             Thread.currentThread().join();
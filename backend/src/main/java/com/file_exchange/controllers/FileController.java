@@ -1,13 +1,18 @@
 package com.file_exchange.controllers;
 
 import com.file_exchange.annotations.*;
+import com.file_exchange.dto.Conditional;
+import com.file_exchange.dto.FileArchiveDto;
 import com.file_exchange.dto.FileDto;
+import com.file_exchange.dto.FilePage;
+import com.file_exchange.dto.FileStat;
 import com.file_exchange.entity.File;
-import com.file_exchange.handlers.utilsFiles.TempFileInputStream;
+import com.file_exchange.handlers.utilsFiles.StreamingPart;
 import com.file_exchange.services.FileService;
 import com.file_exchange.utils.JwtUtil;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -22,33 +27,88 @@ public class FileController {
 
     @CustomPostMapping("/upload")
     public Map<String, Object> upload(@CustomRequestHeader("Authorization") String auth,
-                                      @CustomRequestPart("file") TempFileInputStream filePart) {
-
+                                      @CustomRequestPart("file") StreamingPart filePart) {
 
+        // Checked before any of the body is read - a rejected upload is never written anywhere
         Long userId = extractUserId(auth);
 
         String fileName = filePart.getOriginalFileName();
-        long size = filePart.getFileSize();
 
-        Long fileId = fileService.uploadFile(userId, filePart, fileName, size);
+        // Size is unknown until the part has been streamed, the service records the bytes it wrote
+        Long fileId = fileService.uploadFile(userId, filePart, fileName, -1);
 
         return Map.of("status", "ok", "fileId", fileId);
     }
 
     @CustomGetMapping
-    public List<File> list(@CustomRequestHeader("Authorization") String auth) {
+    public Conditional<List<File>> list(@CustomRequestHeader("Authorization") String auth,
+                                        @CustomRequestHeader("If-None-Match") String ifNoneMatch) {
+        Long userId = extractUserId(auth);
+
+        return fileService.getUserFiles(userId, ifNoneMatch);
+    }
+
+    /**
+     * Keyset-paginated listing: ?sort=id|name|size&order=asc|desc&limit=50&cursor=<nextCursor of the previous page>
+     */
+    @CustomGetMapping("/page")
+    public Conditional<FilePage> page(@CustomRequestHeader("Authorization") String auth,
+                                      @CustomRequestParam("sort") String sort,
+                                      @CustomRequestParam("order") String order,
+                                      @CustomRequestParam("limit") Integer limit,
+                                      @CustomRequestParam("cursor") String cursor,
+                                      @CustomRequestHeader("If-None-Match") String ifNoneMatch) {
         Long userId = extractUserId(auth);
 
-        return fileService.getUserFiles(userId);
+        return fileService.getUserFilesPage(userId, sort, order, limit, cursor, ifNoneMatch);
     }
 
     @CustomGetMapping("/download")
-    public FileDto download(@CustomRequestHeader("Authorization") String auth,
-                            @CustomRequestParam("fileId") Long fileId) {
+    public Conditional<FileDto> download(@CustomRequestHeader("Authorization") String auth,
+                                         @CustomRequestParam("fileId") Long fileId,
+                                         @CustomRequestHeader("If-None-Match") String ifNoneMatch,
+                                         @CustomRequestHeader("If-Modified-Since") String ifModifiedSince,
+                                         @CustomRequestMethod String method) {
+
+        Long userId = extractUserId(auth);
+
+        return fileService.getUserFile(userId, fileId, ifNoneMatch, ifModifiedSince, "HEAD".equals(method));
+    }
 
+    /**
+     * Size, type and content hash of a file from its metadata, for clients that check before transferring.
+     */
+    @CustomGetMapping("/stat")
+    public FileStat stat(@CustomRequestHeader("Authorization") String auth,
+                         @CustomRequestParam("fileId") Long fileId) {
         Long userId = extractUserId(auth);
 
-        return fileService.getUserFile(userId, fileId);
+        return fileService.getUserFileStat(userId, fileId);
+    }
+
+    /**
+     * Bulk download: ?ids=1,2,3 returns one ZIP of those files, streamed as it is built.
+     */
+    @CustomGetMapping("/archive")
+    public FileArchiveDto archive(@CustomRequestHeader("Authorization") String auth,
+                                  @CustomRequestParam("ids") String ids) {
+        Long userId = extractUserId(auth);
+        if (ids == null || ids.isBlank()) {
+            throw new IllegalArgumentException("Missing ids parameter");
+        }
+
+        List<Long> fileIds = new ArrayList<>();
+        try {
+            for (String id : ids.split(",")) {
+                if (!id.isBlank()) {
+                    fileIds.add(Long.parseLong(id.trim()));
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid file id in ids");
+        }
+
+        return fileService.getUserFilesArchive(userId, fileIds);
     }
 
     @CustomDeleteMapping
@@ -0,0 +1,127 @@
+package com.file_exchange.controllers;
+
+import com.file_exchange.annotations.*;
+import com.file_exchange.dto.CreateUploadRequest;
+import com.file_exchange.entity.UploadSession;
+import com.file_exchange.services.UploadService;
+import com.file_exchange.utils.JwtUtil;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resumable uploads:
+ * POST /api/v1/uploads {"fileName": ..., "length": ...} creates a session,
+ * PATCH /api/v1/uploads/{uploadId} with Upload-Offset and an application/octet-stream body appends a chunk,
+ * GET /api/v1/uploads/{uploadId} reports the offset to resume from,
+ * POST /api/v1/uploads/{uploadId}/complete stores the file, DELETE /api/v1/uploads/{uploadId} abandons it.
+ *
+ * Parallel uploads are created with a chunkSize and take their chunks by index, in any order and over
+ * several connections at once: PUT /api/v1/uploads/{uploadId}/chunks/{index} (optionally with Chunk-SHA256),
+ * GET /api/v1/uploads/{uploadId}/chunks lists the chunks received so far.
+ * Completion accepts an Upload-SHA256 header with the hash of the whole file.
+ */
+@CustomRestController
+@CustomRequestMapping("/api/v1/uploads")
+public class UploadController {
+    private final UploadService uploadService;
+
+    public UploadController(UploadService uploadService) {
+        this.uploadService = uploadService;
+    }
+
+    @CustomPostMapping
+    public UploadSession create(@CustomRequestHeader("Authorization") String auth,
+                                @CustomRequestBody CreateUploadRequest request) {
+        Long userId = extractUserId(auth);
+        if (request == null) {
+            throw new IllegalArgumentException("Missing request body");
+        }
+
+        return uploadService.createUpload(userId, request.getFileName(), request.getLength(), request.getChunkSize());
+    }
+
+    @CustomGetMapping("/{uploadId}")
+    public UploadSession status(@CustomRequestHeader("Authorization") String auth,
+                                @CustomPathVariable("uploadId") String uploadId) {
+        Long userId = extractUserId(auth);
+
+        return uploadService.getUpload(userId, uploadId);
+    }
+
+    @CustomPatchMapping("/{uploadId}")
+    public UploadSession appendChunk(@CustomRequestHeader("Authorization") String auth,
+                                     @CustomPathVariable("uploadId") String uploadId,
+                                     @CustomRequestHeader("Upload-Offset") String offset,
+                                     @CustomRequestBody InputStream chunk) {
+        // Checked before any of the chunk is read
+        Long userId = extractUserId(auth);
+        if (offset == null) {
+            throw new IllegalArgumentException("Missing Upload-Offset header");
+        }
+
+        try {
+            return uploadService.appendChunk(userId, uploadId, Long.parseLong(offset.trim()), chunk);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid Upload-Offset header");
+        }
+    }
+
+    @CustomPutMapping("/{uploadId}/chunks/{index}")
+    public Map<String, Object> putChunk(@CustomRequestHeader("Authorization") String auth,
+                                        @CustomPathVariable("uploadId") String uploadId,
+                                        @CustomPathVariable("index") Long index,
+                                        @CustomRequestHeader("Chunk-SHA256") String sha256,
+                                        @CustomRequestBody InputStream chunk) {
+        Long userId = extractUserId(auth);
+
+        String received = uploadService.putChunk(userId, uploadId, index, sha256, chunk);
+
+        return Map.of("uploadId", uploadId, "index", index, "sha256", received);
+    }
+
+    @CustomGetMapping("/{uploadId}/chunks")
+    public List<Long> chunks(@CustomRequestHeader("Authorization") String auth,
+                             @CustomPathVariable("uploadId") String uploadId) {
+        Long userId = extractUserId(auth);
+
+        return uploadService.getReceivedChunks(userId, uploadId);
+    }
+
+    @CustomPostMapping("/{uploadId}/complete")
+    public Map<String, Object> complete(@CustomRequestHeader("Authorization") String auth,
+                                        @CustomPathVariable("uploadId") String uploadId,
+                                        @CustomRequestHeader("Upload-SHA256") String sha256) {
+        Long userId = extractUserId(auth);
+
+        Long fileId = uploadService.completeUpload(userId, uploadId, sha256);
+
+        return Map.of("status", "ok", "fileId", fileId);
+    }
+
+    @CustomDeleteMapping("/{uploadId}")
+    public Map<String, Object> abort(@CustomRequestHeader("Authorization") String auth,
+                                     @CustomPathVariable("uploadId") String uploadId) {
+        Long userId = extractUserId(auth);
+
+        uploadService.abortUpload(userId, uploadId);
+
+        return Map.of("status", "aborted", "uploadId", uploadId);
+    }
+
+    private Long extractUserId(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            throw new IllegalArgumentException("Missing or invalid Authorization header");
+        }
+
+        String token = authHeader.substring(7).trim();
+        String userIdStr = JwtUtil.validateToken(token);
+
+        try {
+            return Long.parseLong(userIdStr);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid user ID in token");
+        }
+    }
+}
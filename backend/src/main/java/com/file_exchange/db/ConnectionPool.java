@@ -0,0 +1,116 @@
+package com.file_exchange.db;
+
+import org.sqlite.SQLiteConfig;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Small SQLite connection pool shared by the repositories.
+ * SQLite allows one writer at a time, so there is exactly one writer connection and writes queue on its lock;
+ * in WAL mode readers never block the writer (or each other), so reads are spread over N read-only connections.
+ * Locks and queues are java.util.concurrent ones, so waiting virtual threads do not pin their carriers.
+ */
+public class ConnectionPool implements AutoCloseable {
+    // How long a connection waits on a locked database before failing with SQLITE_BUSY
+    private static final int BUSY_TIMEOUT_MS = 5000;
+    // Page cache per connection, negative values are KiB (16MB)
+    private static final int CACHE_SIZE_KIB = -16 * 1024;
+    // Reads are served from a memory map of the database file (256MB)
+    private static final long MMAP_SIZE = 256L * 1024 * 1024;
+
+    private final Connection writer;
+    private final ReentrantLock writeLock = new ReentrantLock(true);
+    private final BlockingQueue<Connection> readers;
+    private final List<Connection> allReaders = new ArrayList<>();
+
+    public ConnectionPool(String dbUrl, int readerCount) {
+        if (readerCount < 1) {
+            throw new IllegalArgumentException("readerCount must be at least 1");
+        }
+        try {
+            // The writer goes first: it creates the database file and switches it to WAL, which is persistent
+            this.writer = config(false).createConnection(dbUrl);
+            this.readers = new ArrayBlockingQueue<>(readerCount);
+            for (int i = 0; i < readerCount; i++) {
+                Connection reader = config(true).createConnection(dbUrl);
+                allReaders.add(reader);
+                readers.add(reader);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to connect to database", e);
+        }
+    }
+
+    /**
+     * Pool sized for this machine: one reader per core, at least two.
+     */
+    public static ConnectionPool forCores(String dbUrl) {
+        return new ConnectionPool(dbUrl, Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Runs a read-only query on one of the reader connections.
+     */
+    public <T> T read(SqlFunction<T> work) throws SQLException {
+        Connection conn;
+        try {
+            conn = readers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        try {
+            return work.apply(conn);
+        } finally {
+            readers.add(conn);
+        }
+    }
+
+    /**
+     * Runs a statement on the writer connection; concurrent writers wait their turn.
+     */
+    public <T> T write(SqlFunction<T> work) throws SQLException {
+        writeLock.lock();
+        try {
+            return work.apply(writer);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static SQLiteConfig config(boolean readOnly) {
+        SQLiteConfig config = new SQLiteConfig();
+        if (!readOnly) {
+            // Readers inherit WAL from the file, a read-only connection could not switch it anyway
+            config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        }
+        // With WAL, NORMAL only syncs at checkpoints and is still safe against corruption
+        config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        config.setBusyTimeout(BUSY_TIMEOUT_MS);
+        config.setCacheSize(CACHE_SIZE_KIB);
+        config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, String.valueOf(MMAP_SIZE));
+        config.setReadOnly(readOnly);
+        return config;
+    }
+
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            writer.close();
+            for (Connection reader : allReaders) {
+                reader.close();
+            }
+        } catch (SQLException e) {
+            System.err.println("ConnectionPool - failed to close connections: " + e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -1,16 +1,30 @@
 package com.file_exchange.db;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
 public class DatabaseInitializer {
-    private final String dbUrl = "jdbc:sqlite:users.db";
+    private final ConnectionPool pool;
+
+    public DatabaseInitializer(ConnectionPool pool) {
+        this.pool = pool;
+    }
 
     public void initialize(){
-        try(Connection conn = DriverManager.getConnection(dbUrl);
-            Statement stmt = conn.createStatement()){
+        try {
+            pool.write(conn -> {
+                createSchema(conn);
+                return null;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to initialize database schema", e);
+        }
+    }
+
+    private void createSchema(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
             // create shcheme users
             stmt.execute(
                     "CREATE TABLE IF NOT EXISTS users (" +
@@ -27,10 +41,66 @@ public class DatabaseInitializer {
                             "file_name TEXT, " +
                             "file_path TEXT, " +
                             "size INTEGER, " +
+                            "content_hash TEXT, " +
+                            "codec TEXT, " +
+                            "created_at INTEGER, " +
                             "FOREIGN KEY (user_id) REFERENCES users(id))");
+            // Databases created before content-addressed storage; their rows keep a null hash and own their file
+            addColumnIfMissing(conn, "files", "content_hash", "TEXT");
+            // Null for files stored as uploaded, the only kind there was before compression at rest
+            addColumnIfMissing(conn, "files", "codec", "TEXT");
+            // Null for rows stored before it was recorded
+            addColumnIfMissing(conn, "files", "created_at", "INTEGER");
 
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to initialize database schema", e);
+            // One row per stored blob, ref_count = number of files rows pointing at it
+            stmt.execute(
+                    "CREATE TABLE IF NOT EXISTS blobs (" +
+                            "hash TEXT PRIMARY KEY, " +
+                            "size INTEGER, " +
+                            "ref_count INTEGER NOT NULL)");
+
+            // Resumable uploads in progress; the bytes received so far are staged under uploads/.staging
+            stmt.execute(
+                    "CREATE TABLE IF NOT EXISTS upload_sessions (" +
+                            "id TEXT PRIMARY KEY, " +
+                            "user_id INTEGER NOT NULL, " +
+                            "file_name TEXT, " +
+                            "length INTEGER, " +
+                            "upload_offset INTEGER NOT NULL, " +
+                            "expires_at INTEGER NOT NULL, " +
+                            "chunk_size INTEGER, " +
+                            "FOREIGN KEY (user_id) REFERENCES users(id))");
+            // Set for parallel uploads, whose chunks arrive independently into fixed slots
+            addColumnIfMissing(conn, "upload_sessions", "chunk_size", "INTEGER");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_upload_sessions_expires ON upload_sessions (expires_at)");
+
+            // Chunks of parallel uploads that have been received, with the SHA-256 each was checked against
+            stmt.execute(
+                    "CREATE TABLE IF NOT EXISTS upload_chunks (" +
+                            "upload_id TEXT NOT NULL, " +
+                            "chunk_index INTEGER NOT NULL, " +
+                            "sha256 TEXT NOT NULL, " +
+                            "PRIMARY KEY (upload_id, chunk_index))");
+
+            // Covering indexes for the paginated listing, one per sort key: (user_id, key, id) plus the
+            // projected columns, so a page is read from the index without touching the table
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_files_user_id ON files (user_id, id, file_name, size)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_files_user_name ON files (user_id, file_name, id, size)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_files_user_size ON files (user_id, size, id, file_name)");
+        }
+    }
+
+    private static void addColumnIfMissing(Connection conn, String table, String column, String type) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return;
+                }
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
         }
     }
 }
@@ -0,0 +1,12 @@
+package com.file_exchange.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Work done with a pooled connection, see {@link ConnectionPool}.
+ */
+@FunctionalInterface
+public interface SqlFunction<T> {
+    T apply(Connection conn) throws SQLException;
+}
@@ -0,0 +1,165 @@
+package com.file_exchange.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for small writes. Statements submitted from any number of threads are queued and run by
+ * one background thread on the pool's writer connection, many per transaction: a batch closes after
+ * maxBatchSize writes or maxDelayMs after its first write, whichever comes first.
+ * Each caller gets a future that completes only after the transaction holding its write has committed,
+ * so durability is the same as with one autocommit transaction per write.
+ * Every write runs inside its own savepoint - a failing statement is rolled back alone and fails only its own future.
+ */
+public class WriteBatcher implements AutoCloseable {
+    private static final int DEFAULT_MAX_BATCH_SIZE = 128;
+    private static final long DEFAULT_MAX_DELAY_MS = 2;
+
+    private final ConnectionPool pool;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<PendingWrite<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public WriteBatcher(ConnectionPool pool) {
+        this(pool, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY_MS);
+    }
+
+    public WriteBatcher(ConnectionPool pool, int maxBatchSize, long maxDelayMs) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.pool = pool;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.worker = new Thread(this::run, "db-write-batcher");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queues a write. The future completes with its result once the write is committed.
+     */
+    public <T> CompletableFuture<T> submit(SqlFunction<T> write) {
+        PendingWrite<T> pending = new PendingWrite<>(write);
+        if (!running) {
+            pending.future.completeExceptionally(new SQLException("WriteBatcher is closed"));
+            return pending.future;
+        }
+        queue.add(pending);
+        // close() raced with this submit and the worker may have found the queue empty and exited already
+        if (!running && queue.remove(pending)) {
+            pending.future.completeExceptionally(new SQLException("WriteBatcher is closed"));
+        }
+        return pending.future;
+    }
+
+    private void run() {
+        List<PendingWrite<?>> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    // Take what is already queued without waiting, then wait out the rest of the window
+                    PendingWrite<?> next = queue.poll();
+                    if (next == null) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) break;
+                        next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingWrite<?>> batch) {
+        try {
+            pool.write(conn -> {
+                conn.setAutoCommit(false);
+                try {
+                    for (PendingWrite<?> pending : batch) {
+                        pending.runIn(conn);
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+                return null;
+            });
+        } catch (SQLException | RuntimeException e) {
+            for (PendingWrite<?> pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+            return;
+        }
+        for (PendingWrite<?> pending : batch) {
+            pending.complete();
+        }
+    }
+
+    /**
+     * Stops accepting writes, commits what is already queued and waits for the worker to finish.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class PendingWrite<T> {
+        final SqlFunction<T> write;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+        Exception failure;
+
+        PendingWrite(SqlFunction<T> write) {
+            this.write = write;
+        }
+
+        void runIn(Connection conn) throws SQLException {
+            Savepoint savepoint = conn.setSavepoint();
+            try {
+                result = write.apply(conn);
+                conn.releaseSavepoint(savepoint);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback(savepoint);
+                conn.releaseSavepoint(savepoint);
+                failure = e;
+            }
+        }
+
+        void complete() {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+}
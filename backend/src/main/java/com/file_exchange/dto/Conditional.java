@@ -0,0 +1,91 @@
+package com.file_exchange.dto;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.function.Supplier;
+
+/**
+ * A GET result with its validators. When the client's If-None-Match / If-Modified-Since show that its
+ * copy is current, the body is never produced and the result is sent as 304 Not Modified.
+ */
+public class Conditional<T> {
+    private final boolean notModified;
+    private final T body;
+    private final String etag;
+    private final Instant lastModified;
+
+    private Conditional(boolean notModified, T body, String etag, Instant lastModified) {
+        this.notModified = notModified;
+        this.body = body;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Evaluates the request's preconditions against etag and lastModified (either may be null), and only
+     * calls body when the client does not already have this version.
+     */
+    public static <T> Conditional<T> of(String ifNoneMatch, String ifModifiedSince, String etag, Instant lastModified,
+                                        Supplier<T> body) {
+        if (isNotModified(ifNoneMatch, ifModifiedSince, etag, lastModified)) {
+            return new Conditional<>(true, null, etag, lastModified);
+        }
+        return new Conditional<>(false, body.get(), etag, lastModified);
+    }
+
+    /**
+     * If-None-Match takes precedence: If-Modified-Since is only looked at when it is absent.
+     * ETags are compared weakly, as GET allows, so a compressed copy tagged W/"x" still matches "x".
+     */
+    static boolean isNotModified(String ifNoneMatch, String ifModifiedSince, String etag, Instant lastModified) {
+        if (ifNoneMatch != null) {
+            if (etag == null) {
+                return false;
+            }
+            String opaque = opaque(etag);
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || opaque(tag).equals(opaque)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (ifModifiedSince != null && lastModified != null) {
+            try {
+                Instant since = ZonedDateTime.parse(ifModifiedSince.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+                // Last-Modified is sent with second precision
+                return !lastModified.truncatedTo(ChronoUnit.SECONDS).isAfter(since);
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    public boolean isNotModified() {
+        return notModified;
+    }
+
+    /**
+     * The result, null when the client's copy is current.
+     */
+    public T getBody() {
+        return body;
+    }
+
+    public String getETag() {
+        return etag;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+}
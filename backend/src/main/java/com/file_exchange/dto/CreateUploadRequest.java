@@ -0,0 +1,15 @@
+package com.file_exchange.dto;
+
+import lombok.Data;
+
+/**
+ * Body of a resumable upload creation. length is optional; when it is given, chunks cannot run past it
+ * and the upload can only be completed once exactly that many bytes have arrived.
+ * Setting chunkSize (which requires length) makes it a parallel upload, whose chunks are sent by index.
+ */
+@Data
+public class CreateUploadRequest {
+    private String fileName;
+    private Long length;
+    private Long chunkSize;
+}
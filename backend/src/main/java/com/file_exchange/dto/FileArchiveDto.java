@@ -0,0 +1,21 @@
+package com.file_exchange.dto;
+
+import java.util.List;
+
+/**
+ * Bulk download result: the files that go into a ZIP archive, in archive order.
+ * The archive is built while the response is written, nothing is read here.
+ */
+public class FileArchiveDto {
+    private final String archiveName;
+    private final List<FileDto> files;
+
+    public FileArchiveDto(String archiveName, List<FileDto> files) {
+        this.archiveName = archiveName;
+        this.files = files;
+    }
+
+    public String getArchiveName() { return archiveName; }
+
+    public List<FileDto> getFiles() { return files; }
+}
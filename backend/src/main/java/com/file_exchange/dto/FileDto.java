@@ -1,21 +1,61 @@
 package com.file_exchange.dto;
 
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Instant;
 
+/**
+ * Download result: a reference to the stored file, not its bytes.
+ * The file is streamed to the client when the response is written, from the content cache when
+ * it holds the file.
+ */
 public class FileDto {
     private final String fileName;
     private final String contentType;
-    private final InputStream inputStream;
+    private final Path filePath;
+    private final long size;
+    private final Instant lastModified;
+    private final ByteBuffer content;
+    private final String codec;
 
-    public FileDto(String fileName, String contentType, InputStream inputStream) {
+    public FileDto(String fileName, String contentType, Path filePath, long size, Instant lastModified) {
+        this(fileName, contentType, filePath, size, lastModified, null);
+    }
+
+    public FileDto(String fileName, String contentType, Path filePath, long size, Instant lastModified,
+                   ByteBuffer content) {
+        this(fileName, contentType, filePath, size, lastModified, content, null);
+    }
+
+    public FileDto(String fileName, String contentType, Path filePath, long size, Instant lastModified,
+                   ByteBuffer content, String codec) {
         this.fileName = fileName;
         this.contentType = contentType;
-        this.inputStream = inputStream;
+        this.filePath = filePath;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.content = content;
+        this.codec = codec;
     }
 
     public String getFileName() { return fileName; }
 
     public String getContentType() { return contentType; }
 
-    public InputStream getInputStream() { return inputStream; }
+    public Path getFilePath() { return filePath; }
+
+    public long getSize() { return size; }
+
+    public Instant getLastModified() { return lastModified; }
+
+    /**
+     * Read-only cached bytes of the whole file, or null when it is served from disk.
+     */
+    public ByteBuffer getContent() { return content; }
+
+    /**
+     * StorageCodec the file is stored with, null when it is stored as uploaded. size is always the size
+     * of the content, not of the compressed file.
+     */
+    public String getCodec() { return codec; }
 }
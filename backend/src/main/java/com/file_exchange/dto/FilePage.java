@@ -0,0 +1,24 @@
+package com.file_exchange.dto;
+
+import java.util.List;
+
+/**
+ * A page of a user's files. nextCursor is null on the last page.
+ */
+public class FilePage {
+    private final List<FileSummary> items;
+    private final String nextCursor;
+
+    public FilePage(List<FileSummary> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<FileSummary> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,42 @@
+package com.file_exchange.dto;
+
+/**
+ * What a client needs to decide whether to transfer a file, all taken from its row:
+ * the stored file is not touched. contentHash is the SHA-256 of the content, null for files stored
+ * before content addressing.
+ */
+public class FileStat {
+    private final Long id;
+    private final String fileName;
+    private final long size;
+    private final String contentType;
+    private final String contentHash;
+
+    public FileStat(Long id, String fileName, long size, String contentType, String contentHash) {
+        this.id = id;
+        this.fileName = fileName;
+        this.size = size;
+        this.contentType = contentType;
+        this.contentHash = contentHash;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+}
@@ -0,0 +1,28 @@
+package com.file_exchange.dto;
+
+/**
+ * One row of the paginated listing - only the columns the covering indexes hold.
+ */
+public class FileSummary {
+    private final Long id;
+    private final String fileName;
+    private final long size;
+
+    public FileSummary(Long id, String fileName, long size) {
+        this.id = id;
+        this.fileName = fileName;
+        this.size = size;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+}
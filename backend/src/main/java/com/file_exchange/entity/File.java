@@ -7,15 +7,25 @@ public class File {
     private String fileName;
     private String filePath;
     private long size;
+    private String contentHash;
+    // StorageCodec the stored bytes are compressed with, null when they are the content as uploaded
+    private String codec;
+    // Epoch millis the row was created; the blob it points at may be older and shared with other users
+    private Long createdAt;
 
     public File() {}
 
     public File(Long id, Long userId, String fileName, String filePath, long size) {
+        this(id, userId, fileName, filePath, size, null);
+    }
+
+    public File(Long id, Long userId, String fileName, String filePath, long size, String contentHash) {
         this.id = id;
         this.userId = userId;
         this.fileName = fileName;
         this.filePath = filePath;
         this.size = size;
+        this.contentHash = contentHash;
     }
 
     public Long getId() {
@@ -58,6 +68,30 @@ public class File {
         this.size = size;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getCodec() {
+        return codec;
+    }
+
+    public void setCodec(String codec) {
+        this.codec = codec;
+    }
+
+    public Long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Long createdAt) {
+        this.createdAt = createdAt;
+    }
+
     @Override
     public String toString() {
         return "File{" +
@@ -66,6 +100,9 @@ public class File {
                 ", fileName='" + fileName + '\'' +
                 ", filePath='" + filePath + '\'' +
                 ", size=" + size +
+                ", contentHash='" + contentHash + '\'' +
+                ", codec='" + codec + '\'' +
+                ", createdAt=" + createdAt +
                 '}';
     }
 }
@@ -0,0 +1,74 @@
+package com.file_exchange.entity;
+
+/**
+ * A resumable upload in progress. offset is the number of bytes received and stored so far,
+ * length the total announced by the client, or null when it is only known at completion.
+ * A parallel upload has a chunkSize instead: its chunks arrive independently, in any order,
+ * into the slot index * chunkSize of a file preallocated to length, and offset stays 0.
+ */
+public class UploadSession {
+    private final String id;
+    private final Long userId;
+    private final String fileName;
+    private final Long length;
+    private final long offset;
+    private final long expiresAt;
+    private final Long chunkSize;
+
+    public UploadSession(String id, Long userId, String fileName, Long length, long offset, long expiresAt) {
+        this(id, userId, fileName, length, offset, expiresAt, null);
+    }
+
+    public UploadSession(String id, Long userId, String fileName, Long length, long offset, long expiresAt,
+                         Long chunkSize) {
+        this.id = id;
+        this.userId = userId;
+        this.fileName = fileName;
+        this.length = length;
+        this.offset = offset;
+        this.expiresAt = expiresAt;
+        this.chunkSize = chunkSize;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Long getLength() {
+        return length;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Epoch milliseconds after which the session and its bytes are discarded.
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public Long getChunkSize() {
+        return chunkSize;
+    }
+
+    public boolean isParallel() {
+        return chunkSize != null;
+    }
+
+    /**
+     * Number of chunks a parallel upload is made of, the last one may be shorter than chunkSize. 0 for sequential uploads.
+     */
+    public long getChunkCount() {
+        return chunkSize == null ? 0 : (length + chunkSize - 1) / chunkSize;
+    }
+}
@@ -7,6 +7,7 @@ public class Builder {
     private boolean useVirtualThreads = false;
     private String threadNamePrefix = "custom-worker";
     private BlockingQueue<Runnable> workQueue;
+    private boolean workStealing = false;
 
     public Builder corePoolSize(int corePoolSize) {
         this.corePoolSize = corePoolSize;
@@ -28,10 +29,25 @@ public class Builder {
         return this;
     }
 
+    /**
+     * Per-worker deques with stealing instead of one shared queue, see {@link WorkStealingExecutorService}.
+     * Cannot be combined with a custom workQueue.
+     */
+    public Builder workStealing(boolean workStealing) {
+        this.workStealing = workStealing;
+        return this;
+    }
+
     /**
      * create a object without start
      */
     public CustomExecutorService build() {
+        if (workStealing) {
+            if (workQueue != null) {
+                throw new IllegalArgumentException("workQueue cannot be set for a work-stealing pool");
+            }
+            return new WorkStealingExecutorService(corePoolSize, useVirtualThreads, threadNamePrefix);
+        }
         return new CustomExecutorService(corePoolSize, useVirtualThreads,
                 threadNamePrefix, workQueue);
     }
@@ -86,6 +86,15 @@ public class CustomExecutorService implements ExecutorService {
                 .buildAndStart();
     }
 
+    public static CustomExecutorService newWorkStealingPool(int nThreads) {
+        return builder()
+                .corePoolSize(nThreads)
+                .useVirtualThreads(false)
+                .threadNamePrefix("work-stealing-pool")
+                .workStealing(true)
+                .buildAndStart();
+    }
+
     //Creation ThreadFactory
     private ThreadFactory createThreadFactory() {
         if (useVirtualThreads) {
@@ -102,12 +111,21 @@ public class CustomExecutorService implements ExecutorService {
 
     private void initializeWorkers() {
         for (int i = 0; i < corePoolSize; i++) {
-            Thread worker = threadFactory.newThread(new WorkerRunnable());
-            poolWorkers.add(worker);
+            poolWorkers.add(threadFactory.newThread(createWorker(i)));
+        }
+        // Started only once all exist, so a worker never sees the pool half built
+        for (Thread worker : poolWorkers) {
             worker.start();
         }
     }
 
+    /**
+     * The loop run by worker number index. It must count down the shutdown latch when it exits.
+     */
+    protected Runnable createWorker(int index) {
+        return new WorkerRunnable();
+    }
+
     //Check initialization before use
     protected void ensureStarted() {
         if (!started) {
@@ -160,15 +178,23 @@ public class CustomExecutorService implements ExecutorService {
 
         shutdown.set(true);
 
+        // Drained before the interrupt: a task that swallows it leaves its worker free to take queued tasks
+        List<Runnable> result = new ArrayList<>();
+        drainQueued(result);
         for(Thread worker : poolWorkers) {
             worker.interrupt();
         }
-        List<Runnable> result = new ArrayList<>();
-        workQueue.drainTo(result);
 
         return result;
     }
 
+    /**
+     * Moves every task that has not started yet into pending.
+     */
+    protected void drainQueued(List<Runnable> pending) {
+        workQueue.drainTo(pending);
+    }
+
     @Override
     public boolean isShutdown() {
         return started && shutdown.get();
@@ -0,0 +1,239 @@
+package com.file_exchange.executor;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pool without a shared blocking take. Every worker owns a deque: tasks submitted from a worker go to
+ * the head of its own deque and it takes them back from there (LIFO, still hot in its cache), while
+ * idle workers steal from the tail of the others'. Tasks from outside the pool go through the workQueue,
+ * a lock-free LinkedTransferQueue that is only ever polled. A worker that finds no work anywhere parks
+ * until a submit unparks it.
+ *
+ * Start, shutdown flag, latch and worker threads are the ones of CustomExecutorService, so its getters
+ * and isShutdown/isTerminated/awaitTermination describe this pool as well.
+ */
+class WorkStealingExecutorService extends CustomExecutorService {
+    // Empty scans before a worker parks, so a burst of short tasks does not pay for park/unpark each time.
+    // On a single CPU spinning only takes time from the thread that would produce the work
+    private static final int SPINS_BEFORE_PARK = Runtime.getRuntime().availableProcessors() > 1 ? 64 : 0;
+
+    private final Worker[] workers;
+    private final ThreadLocal<Worker> currentWorker = new ThreadLocal<>();
+    private final AtomicInteger idleWorkers = new AtomicInteger();
+    // Workers scanning for a task; while there is one, a submit leaves the parked workers alone
+    private final AtomicInteger searchingWorkers = new AtomicInteger();
+
+    WorkStealingExecutorService(int corePoolSize, boolean useVirtualThreads, String threadNamePrefix) {
+        super(corePoolSize, useVirtualThreads, threadNamePrefix, new LinkedTransferQueue<>());
+        this.workers = new Worker[corePoolSize];
+    }
+
+    @Override
+    protected Runnable createWorker(int index) {
+        workers[index] = new Worker();
+        return workers[index];
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        ensureStarted();
+        if (command == null) {
+            throw new NullPointerException("Command is null");
+        }
+        if (getShutdown().get()) {
+            throw new RejectedExecutionException("Executor shutdown");
+        }
+        Worker self = currentWorker.get();
+        if (self != null) {
+            self.deque.offerFirst(command);
+        } else {
+            getWorkQueue().offer(command);
+            // Shutdown raced with this submit and the workers may have drained and exited already
+            if (getShutdown().get() && getWorkQueue().remove(command)) {
+                throw new RejectedExecutionException("Executor shutdown");
+            }
+        }
+        if (searchingWorkers.get() == 0 && idleWorkers.get() > 0) {
+            wakeOne(self);
+        }
+    }
+
+    private void wakeOne(Worker self) {
+        int start = ThreadLocalRandom.current().nextInt(workers.length);
+        for (int i = 0; i < workers.length; i++) {
+            Worker worker = workers[(start + i) % workers.length];
+            // Claimed worker wakes up already counted as searching, so the submits behind this one skip waking
+            if (worker != self && worker.parked.compareAndSet(true, false)) {
+                searchingWorkers.incrementAndGet();
+                idleWorkers.decrementAndGet();
+                LockSupport.unpark(worker.thread);
+                return;
+            }
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final ConcurrentLinkedDeque<Runnable> deque = new ConcurrentLinkedDeque<>();
+        private final AtomicBoolean parked = new AtomicBoolean(false);
+        // Written before parked is first set, and only read by whoever claims parked
+        private Thread thread;
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            currentWorker.set(this);
+            int spins = 0;
+            boolean searching = false;
+            try {
+                while (true) {
+                    // Cleared so that a task's leftover interrupt cannot keep park() from blocking;
+                    // after shutdownNow it means stop, the queued tasks are returned to its caller
+                    if (Thread.interrupted() && getShutdown().get()) {
+                        break;
+                    }
+                    Runnable task = findTask();
+                    if (task != null) {
+                        if (searching) {
+                            searching = false;
+                            stopSearching();
+                        }
+                        spins = 0;
+                        runTask(task);
+                    } else if (getShutdown().get()) {
+                        break;
+                    } else if (spins++ < SPINS_BEFORE_PARK) {
+                        if (!searching) {
+                            searching = true;
+                            searchingWorkers.incrementAndGet();
+                        }
+                        Thread.onSpinWait();
+                    } else {
+                        if (searching) {
+                            searching = false;
+                            searchingWorkers.decrementAndGet();
+                        }
+                        spins = 0;
+                        searching = park();
+                    }
+                }
+            } finally {
+                if (searching) {
+                    searchingWorkers.decrementAndGet();
+                }
+                currentWorker.remove();
+                getShutdownLatch().countDown();
+            }
+        }
+
+        /**
+         * The last searcher to find a task hands the search on, since submits skipped waking anyone
+         * while it was looking and more work may have arrived meanwhile.
+         */
+        private void stopSearching() {
+            if (searchingWorkers.decrementAndGet() == 0 && idleWorkers.get() > 0 && hasWork()) {
+                wakeOne(this);
+            }
+        }
+
+        private Runnable findTask() {
+            Runnable task = deque.pollFirst();
+            if (task == null) {
+                task = getWorkQueue().poll();
+            }
+            if (task == null) {
+                task = steal();
+            }
+            return task;
+        }
+
+        /**
+         * Takes the oldest task of another worker, starting from a random victim so thieves spread out.
+         */
+        private Runnable steal() {
+            int count = workers.length;
+            int start = ThreadLocalRandom.current().nextInt(count);
+            for (int i = 0; i < count; i++) {
+                Worker victim = workers[(start + i) % count];
+                if (victim != this) {
+                    Runnable task = victim.deque.pollLast();
+                    if (task != null) {
+                        return task;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Parks until a submit or shutdown unparks this worker; no timeout is needed. A submit enqueues
+         * before it reads idleWorkers and the parked flags, and this worker publishes both before it looks
+         * at the queues again, so either the submit sees the worker parked and claims it, or the worker
+         * sees the task and does not park.
+         * Returns true when the worker was claimed by a submit, which counted it as searching already.
+         */
+        private boolean park() {
+            idleWorkers.incrementAndGet();
+            parked.set(true);
+            while (parked.get() && !getShutdown().get() && !hasWork() && !thread.isInterrupted()) {
+                LockSupport.park(WorkStealingExecutorService.this);
+            }
+            if (parked.compareAndSet(true, false)) {
+                idleWorkers.decrementAndGet();
+                return false;
+            }
+            return true;
+        }
+
+        private void runTask(Runnable task) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                System.err.println("Task execution failed: " + t.getMessage());
+                t.printStackTrace();
+            }
+        }
+    }
+
+    private boolean hasWork() {
+        if (!getWorkQueue().isEmpty()) {
+            return true;
+        }
+        for (Worker worker : workers) {
+            if (!worker.deque.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Queued tasks still run; workers exit once every queue is empty. Unlike the shared-queue pool the
+     * workers are unparked rather than interrupted, since they keep draining after the flag is set.
+     */
+    @Override
+    public void shutdown() {
+        ensureStarted();
+        getShutdown().set(true);
+        for (Thread worker : getPoolWorkers()) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    @Override
+    protected void drainQueued(List<Runnable> pending) {
+        super.drainQueued(pending);
+        for (Worker worker : workers) {
+            Runnable task;
+            while ((task = worker.deque.pollLast()) != null) {
+                pending.add(task);
+            }
+        }
+    }
+}
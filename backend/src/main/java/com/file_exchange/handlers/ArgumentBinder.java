@@ -0,0 +1,14 @@
+package com.file_exchange.handlers;
+
+import com.file_exchange.http.HttpRequest;
+
+import java.io.IOException;
+
+/**
+ * Resolves one handler argument straight from the request.
+ * A route's binders are built once at registration (see ParameterBinder.compile).
+ */
+@FunctionalInterface
+public interface ArgumentBinder {
+    Object bind(HttpRequest request) throws IOException;
+}
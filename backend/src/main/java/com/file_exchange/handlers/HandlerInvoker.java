@@ -0,0 +1,10 @@
+package com.file_exchange.handlers;
+
+/**
+ * Calls a controller method with already bound arguments.
+ * Generated routes implement it with a direct call, so the request path has no Method.invoke.
+ */
+@FunctionalInterface
+public interface HandlerInvoker {
+    Object invoke(Object[] args) throws Exception;
+}
@@ -3,21 +3,27 @@ package com.file_exchange.handlers;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.lang.reflect.Method;
-
 @Getter
 @Setter
 public class HandlerMethod {
     final Object controller;
-    final Method method;
     final String path;
     final String httpMethod;
+    // Controller method name, used in logs and error messages
+    final String name;
+    final HandlerParameter[] parameters;
+    final HandlerInvoker invoker;
+    // One binder per parameter, compiled by ParameterBinder when the route is registered
+    ArgumentBinder[] bindingPlan;
 
-    public HandlerMethod(Object controller, Method method, String path, String httpMethod) {
+    public HandlerMethod(Object controller, String path, String httpMethod, String name,
+                         HandlerParameter[] parameters, HandlerInvoker invoker) {
         this.controller = controller;
-        this.method = method;
         this.path = path;
         this.httpMethod = httpMethod;
+        this.name = name;
+        this.parameters = parameters;
+        this.invoker = invoker;
     }
 
 }
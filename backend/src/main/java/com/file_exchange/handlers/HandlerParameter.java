@@ -0,0 +1,32 @@
+package com.file_exchange.handlers;
+
+import lombok.Getter;
+
+/**
+ * Where one handler argument comes from, resolved once when the route is registered
+ * instead of re-reading parameter annotations on every request.
+ */
+@Getter
+public class HandlerParameter {
+    public enum Source {
+        BODY,
+        QUERY_PARAM,
+        PATH_VARIABLE,
+        HEADER,
+        PART,
+        // The request method, see CustomRequestMethod
+        METHOD,
+        // No binding annotation - the argument is passed as null
+        NONE
+    }
+
+    private final Source source;
+    private final String name;
+    private final Class<?> type;
+
+    public HandlerParameter(Source source, String name, Class<?> type) {
+        this.source = source;
+        this.name = name;
+        this.type = type;
+    }
+}
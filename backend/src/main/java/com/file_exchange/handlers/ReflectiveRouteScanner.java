@@ -0,0 +1,120 @@
+package com.file_exchange.handlers;
+
+import com.file_exchange.annotations.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fallback for controllers that were not compiled with RouteProcessor (e.g. test controllers):
+ * discovers mappings by reflection once at registration and invokes them through Method.invoke.
+ */
+public class ReflectiveRouteScanner {
+
+    private ReflectiveRouteScanner() {
+    }
+
+    public static List<HandlerMethod> scan(Object controller) {
+        Class<?> clas = controller.getClass();
+        List<HandlerMethod> handlers = new ArrayList<>();
+
+        String basePath = "";
+        if (clas.isAnnotationPresent(CustomRequestMapping.class)) {
+            basePath = clas.getAnnotation(CustomRequestMapping.class).value();
+            if (!basePath.startsWith("/")) basePath = "/" + basePath;
+        }
+
+        for (Method method : clas.getDeclaredMethods()) {
+            String path = basePath;
+            String httpMethod = null;
+
+            if (method.isAnnotationPresent(CustomRequestMapping.class)) {
+                CustomRequestMapping mapping = method.getAnnotation(CustomRequestMapping.class);
+                path = combinePaths(basePath, mapping.value());
+                httpMethod = mapping.httpMethod().name();
+            } else if (method.isAnnotationPresent(CustomGetMapping.class)) {
+                CustomGetMapping mapping = method.getAnnotation(CustomGetMapping.class);
+                path = combinePaths(basePath, mapping.value());
+                httpMethod = "GET";
+            } else if (method.isAnnotationPresent(CustomPostMapping.class)) {
+                CustomPostMapping mapping = method.getAnnotation(CustomPostMapping.class);
+                path = combinePaths(basePath, mapping.value());
+                httpMethod = "POST";
+            } else if (method.isAnnotationPresent(CustomPutMapping.class)) {
+                CustomPutMapping mapping = method.getAnnotation(CustomPutMapping.class);
+                path = combinePaths(basePath, mapping.value());
+                httpMethod = "PUT";
+            } else if (method.isAnnotationPresent(CustomPatchMapping.class)) {
+                CustomPatchMapping mapping = method.getAnnotation(CustomPatchMapping.class);
+                path = combinePaths(basePath, mapping.value());
+                httpMethod = "PATCH";
+            } else if (method.isAnnotationPresent(CustomDeleteMapping.class)) {
+                CustomDeleteMapping mapping = method.getAnnotation(CustomDeleteMapping.class);
+                path = combinePaths(basePath, mapping.value());
+                httpMethod = "DELETE";
+            }
+
+            if (httpMethod != null) {
+                handlers.add(new HandlerMethod(controller, path, httpMethod, method.getName(),
+                        parametersOf(method), invokerFor(controller, method)));
+            }
+        }
+        return handlers;
+    }
+
+    public static String combinePaths(String basePath, String methodPath) {
+        String path = basePath;
+        if (!methodPath.isEmpty()) {
+            if (!methodPath.startsWith("/")) {
+                path += "/" + methodPath;
+            } else {
+                path += methodPath;
+            }
+        }
+        return path.isEmpty() ? "/" : path;
+    }
+
+    private static HandlerParameter[] parametersOf(Method method) {
+        Parameter[] params = method.getParameters();
+        HandlerParameter[] result = new HandlerParameter[params.length];
+        for (int i = 0; i < params.length; i++) {
+            Parameter p = params[i];
+            if (p.isAnnotationPresent(CustomRequestBody.class)) {
+                result[i] = new HandlerParameter(HandlerParameter.Source.BODY, null, p.getType());
+            } else if (p.isAnnotationPresent(CustomRequestParam.class)) {
+                result[i] = new HandlerParameter(HandlerParameter.Source.QUERY_PARAM,
+                        p.getAnnotation(CustomRequestParam.class).value(), p.getType());
+            } else if (p.isAnnotationPresent(CustomPathVariable.class)) {
+                result[i] = new HandlerParameter(HandlerParameter.Source.PATH_VARIABLE,
+                        p.getAnnotation(CustomPathVariable.class).value(), p.getType());
+            } else if (p.isAnnotationPresent(CustomRequestHeader.class)) {
+                result[i] = new HandlerParameter(HandlerParameter.Source.HEADER,
+                        p.getAnnotation(CustomRequestHeader.class).value(), p.getType());
+            } else if (p.isAnnotationPresent(CustomRequestPart.class)) {
+                result[i] = new HandlerParameter(HandlerParameter.Source.PART,
+                        p.getAnnotation(CustomRequestPart.class).value(), p.getType());
+            } else if (p.isAnnotationPresent(CustomRequestMethod.class)) {
+                result[i] = new HandlerParameter(HandlerParameter.Source.METHOD, null, p.getType());
+            } else {
+                result[i] = new HandlerParameter(HandlerParameter.Source.NONE, null, p.getType());
+            }
+        }
+        return result;
+    }
+
+    private static HandlerInvoker invokerFor(Object controller, Method method) {
+        method.setAccessible(true);
+        return args -> {
+            try {
+                return method.invoke(controller, args);
+            } catch (InvocationTargetException e) {
+                // Surface the controller's own exception, as a generated invoker would
+                if (e.getCause() instanceof Exception cause) throw cause;
+                throw (Error) e.getCause();
+            }
+        };
+    }
+}
@@ -0,0 +1,172 @@
+package com.file_exchange.handlers.dispatcher;
+
+import com.file_exchange.http.CompressedFileBody;
+import com.file_exchange.http.FileRegionBody;
+import com.file_exchange.http.HttpRequest;
+import com.file_exchange.http.HttpResponse;
+import com.file_exchange.http.MultipartByteRangesBody;
+import com.file_exchange.http.StreamingBody;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Turns a full file response into 206 Partial Content when the request carries a satisfiable Range header.
+ * Supports single ranges, suffix ranges (bytes=-500), open ranges (bytes=100-) and multi-range
+ * multipart/byteranges responses. If-Range is honoured against the response's ETag or Last-Modified.
+ * Files stored compressed get single ranges of their decoded content; several ranges would each decode
+ * the file again, so for them the header is ignored and the full file is sent.
+ */
+public class ByteRangeHandler {
+    // More ranges than this is treated as abuse and answered with the full file
+    private static final int MAX_RANGES = 16;
+
+    public HttpResponse apply(HttpRequest request, HttpResponse response) {
+        StreamingBody body = response.getStreamingBody();
+        if (response.getStatusCode() != 200
+                || !(body instanceof FileRegionBody || body instanceof CompressedFileBody)) {
+            return response;
+        }
+        response.getHeaders().put("Accept-Ranges", "bytes");
+
+        String rangeHeader = request.getHeaders().get("range");
+        if (rangeHeader == null || !"GET".equals(request.getMethod())) {
+            return response;
+        }
+        if (!ifRangeMatches(request.getHeaders().get("if-range"), response)) {
+            return response;
+        }
+
+        long size = body.contentLength();
+        List<long[]> ranges = parseRanges(rangeHeader, size);
+        if (ranges == null || (ranges.size() > 1 && body instanceof CompressedFileBody)) {
+            // Syntactically invalid, too many ranges or several of a compressed file - the header is ignored
+            return response;
+        }
+        if (ranges.isEmpty()) {
+            return HttpResponse.rangeNotSatisfiable(size);
+        }
+
+        Map<String, String> headers = new HashMap<>(response.getHeaders());
+        if (ranges.size() == 1) {
+            long[] range = ranges.get(0);
+            headers.put("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + size);
+            long length = range[1] - range[0] + 1;
+            StreamingBody slice = body instanceof FileRegionBody file
+                    ? file.slice(range[0], length)
+                    : ((CompressedFileBody) body).slice(range[0], length);
+            return HttpResponse.partialContent(slice, response.getContentType(), headers);
+        }
+
+        FileRegionBody file = (FileRegionBody) body;
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        MultipartByteRangesBody multipart = new MultipartByteRangesBody(file.getPath(), response.getContentType(), size,
+                shift(ranges, file.getPosition()), boundary);
+        return HttpResponse.partialContent(multipart, "multipart/byteranges; boundary=" + boundary, headers);
+    }
+
+    /**
+     * Parses a "bytes=" Range header into inclusive {first, last} pairs, sorted and coalesced.
+     * Returns null when the header must be ignored and an empty list when no range is satisfiable.
+     */
+    static List<long[]> parseRanges(String header, long size) {
+        String value = header.trim();
+        if (!value.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+
+        String[] specs = value.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<long[]> ranges = new ArrayList<>();
+        for (String spec : specs) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) return null;
+
+            String firstPart = spec.substring(0, dash).trim();
+            String lastPart = spec.substring(dash + 1).trim();
+            long first;
+            long last;
+            try {
+                if (firstPart.isEmpty()) {
+                    // Suffix range: the last N bytes
+                    long suffix = Long.parseLong(lastPart);
+                    if (suffix <= 0 || size == 0) continue;
+                    first = Math.max(0, size - suffix);
+                    last = size - 1;
+                } else {
+                    first = Long.parseLong(firstPart);
+                    last = lastPart.isEmpty() ? size - 1 : Math.min(Long.parseLong(lastPart), size - 1);
+                    if (first < 0 || (!lastPart.isEmpty() && Long.parseLong(lastPart) < first)) return null;
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+
+            if (first < size && first <= last) {
+                ranges.add(new long[]{first, last});
+            }
+        }
+        return coalesce(ranges);
+    }
+
+    private static List<long[]> coalesce(List<long[]> ranges) {
+        if (ranges.size() < 2) return ranges;
+
+        ranges.sort(Comparator.comparingLong(r -> r[0]));
+        List<long[]> merged = new ArrayList<>();
+        long[] current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            long[] next = ranges.get(i);
+            if (next[0] <= current[1] + 1) {
+                current = new long[]{current[0], Math.max(current[1], next[1])};
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+
+    private static List<long[]> shift(List<long[]> ranges, long offset) {
+        if (offset == 0) return ranges;
+        List<long[]> shifted = new ArrayList<>(ranges.size());
+        for (long[] range : ranges) {
+            shifted.add(new long[]{range[0] + offset, range[1] + offset});
+        }
+        return shifted;
+    }
+
+    /**
+     * If-Range: the range applies only if the validator still matches the current representation.
+     */
+    private boolean ifRangeMatches(String ifRange, HttpResponse response) {
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Weak validators never match for ranges
+            String etag = response.getHeaders().get("ETag");
+            return etag != null && !etag.startsWith("W/") && etag.equals(ifRange);
+        }
+
+        String lastModified = response.getHeaders().get("Last-Modified");
+        if (lastModified == null) {
+            return false;
+        }
+        try {
+            ZonedDateTime since = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME);
+            ZonedDateTime modified = ZonedDateTime.parse(lastModified, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return since.toInstant().equals(modified.toInstant());
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
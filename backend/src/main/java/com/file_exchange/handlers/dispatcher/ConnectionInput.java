@@ -0,0 +1,205 @@
+package com.file_exchange.handlers.dispatcher;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Per-connection read buffer shared by every request on a keep-alive connection.
+ * HttpRequestParser scans request heads in place inside it, and bytes read past the end of one
+ * request (pipelining) stay buffered for the next one instead of being dropped.
+ * Body reads drain the buffer first and then go to the underlying stream.
+ */
+public class ConnectionInput extends InputStream {
+    // Request heads larger than this are rejected
+    public static final int MAX_HEAD_SIZE = 64 * 1024;
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    private InputStream source;
+    private byte[] buf = new byte[INITIAL_BUFFER_SIZE];
+    private int pos = 0;
+    private int limit = 0;
+    // Offset (relative to pos) up to which the buffer is known not to contain the end of the head
+    private int scanned = 0;
+
+    public ConnectionInput(InputStream source) {
+        this.source = source;
+    }
+
+    /**
+     * Replaces the stream used once the buffered bytes run out, e.g. when an NIO connection
+     * moves from its selector to a blocking worker.
+     */
+    public void setSource(InputStream source) {
+        this.source = source;
+    }
+
+    byte[] buffer() {
+        return buf;
+    }
+
+    int position() {
+        return pos;
+    }
+
+    int buffered() {
+        return limit - pos;
+    }
+
+    /**
+     * Blocks until a full request head is buffered.
+     * Returns the offset just past the empty line that ends it, or -1 if the stream ended first.
+     */
+    int readHead() throws IOException {
+        while (true) {
+            int end = findHeadEnd();
+            if (end != -1) {
+                return end;
+            }
+            if (fillFromSource() == -1) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Whether the bytes already buffered contain a complete request head. Never blocks.
+     */
+    public boolean hasBufferedHead() {
+        return findHeadEnd() != -1;
+    }
+
+    /**
+     * Non-blocking fill used by the NIO event loop. Returns bytes read or -1 at end of stream.
+     */
+    public int fillFrom(ReadableByteChannel channel) throws IOException {
+        makeRoom();
+        int read = channel.read(ByteBuffer.wrap(buf, limit, buf.length - limit));
+        if (read > 0) {
+            limit += read;
+        }
+        return read;
+    }
+
+    /**
+     * Marks the head up to the given offset as consumed.
+     */
+    void consumeTo(int offset) {
+        pos = offset;
+        scanned = 0;
+        if (pos == limit) {
+            pos = limit = 0;
+        }
+    }
+
+    private int findHeadEnd() {
+        int from = pos + Math.max(scanned, 3);
+        for (int i = from; i < limit; i++) {
+            if (buf[i] == '\n' && buf[i - 1] == '\r' && buf[i - 2] == '\n' && buf[i - 3] == '\r') {
+                return i + 1;
+            }
+        }
+        scanned = Math.max(limit - pos, 3);
+        return -1;
+    }
+
+    private int fillFromSource() throws IOException {
+        makeRoom();
+        int read = source.read(buf, limit, buf.length - limit);
+        if (read > 0) {
+            limit += read;
+        }
+        return read;
+    }
+
+    /**
+     * Ensures there is free space after limit: compacts unread bytes to the front,
+     * and grows the buffer (up to MAX_HEAD_SIZE) only when a single head does not fit.
+     */
+    private void makeRoom() throws IOException {
+        if (limit < buf.length) {
+            return;
+        }
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+            return;
+        }
+        if (buf.length >= MAX_HEAD_SIZE) {
+            throw new IOException("Request head exceeds " + MAX_HEAD_SIZE + " bytes");
+        }
+        byte[] bigger = new byte[Math.min(buf.length * 2, MAX_HEAD_SIZE)];
+        System.arraycopy(buf, 0, bigger, 0, limit);
+        buf = bigger;
+    }
+
+    @Override
+    public int read() throws IOException {
+        scanned = 0;
+        if (pos == limit) {
+            pos = limit = 0;
+            if (fillFromSource() <= 0) {
+                return -1;
+            }
+        }
+        return buf[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        scanned = 0;
+        if (pos < limit) {
+            int n = Math.min(len, limit - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            if (pos == limit) {
+                pos = limit = 0;
+            }
+            return n;
+        }
+        // Nothing buffered: read straight into the caller's array, never past what it asked for
+        return source.read(b, off, len);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (limit - pos) + source.available();
+    }
+
+    /**
+     * Reads and discards exactly n bytes, e.g. an unread request body before the next request.
+     */
+    public void discard(long n) throws IOException {
+        scanned = 0;
+        while (n > 0) {
+            if (pos < limit) {
+                int step = (int) Math.min(n, limit - pos);
+                pos += step;
+                n -= step;
+                if (pos == limit) {
+                    pos = limit = 0;
+                }
+            } else {
+                long skipped = source.skip(n);
+                if (skipped <= 0) {
+                    if (source.read() == -1) {
+                        throw new EOFException("Connection closed inside request body");
+                    }
+                    skipped = 1;
+                }
+                n -= skipped;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
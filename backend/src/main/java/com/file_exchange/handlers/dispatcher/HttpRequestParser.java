@@ -1,15 +1,15 @@
 package com.file_exchange.handlers.dispatcher;
 
-import com.file_exchange.handlers.utilsFiles.InputStreamRequestContext;
-import com.file_exchange.handlers.utilsFiles.TempFileInputStream;
+import com.file_exchange.http.ConnectionBody;
 import com.file_exchange.http.HttpRequest;
-import org.apache.commons.fileupload.*;
-import org.apache.commons.fileupload.util.Streams;
+import com.file_exchange.http.MultipartParts;
+import org.apache.commons.io.input.BoundedInputStream;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -17,162 +17,150 @@ import java.util.Map;
  *  Parses incoming requests.
  *  Supports:
  *  Regular text requests (e.g. JSON, form-urlencoded)
- *  Multipart/form-data requests (used for file uploads)
+ *  Multipart/form-data requests (used for file uploads) - the parts are left on the connection, see MultipartParts
+ *  Binary (application/octet-stream) requests, e.g. resumable upload chunks - the body is left on the connection
  */
 public class HttpRequestParser {
-    // Maximum size of data to hold in memory (5MB)
-    private static final int MAX_IN_MEMORY_SIZE = 5 * 1024 * 1024;
-    // Maximum allowed file size (100MB)
-    private static final long MAX_FILE_SIZE = 100 * 1024 * 1024;
+    // Uploads are staged inside the uploads directory, so committing one is a rename on the same filesystem
+    public static final Path STAGING_DIRECTORY = Paths.get("uploads", ".staging");
 
     // Temporary directory used to store uploaded files before processing
     private final Path tempDirectory;
 
     public HttpRequestParser() {
+        this(STAGING_DIRECTORY);
+    }
+
+    public HttpRequestParser(Path stagingDirectory) {
         try {
-            // Create temp directory for large files
-            this.tempDirectory = Files.createTempDirectory("file-exchange-temp");
+            this.tempDirectory = Files.createDirectories(stagingDirectory);
         } catch (IOException e) {
-            throw new RuntimeException("Failed to create temp directory", e);
+            throw new RuntimeException("Failed to create staging directory " + stagingDirectory, e);
         }
     }
 
     /**
      * Main entry point for parsing an incoming HTTP request.
-     * Reads from the provided InputStream and returns a populated HttpRequest object.
+     * The head is scanned in place inside the connection's buffer; bytes belonging to the next
+     * pipelined request stay buffered in the ConnectionInput.
      */
-    public HttpRequest parse(InputStream inputStream) throws IOException {
-        BufferedInputStream bufferedStream = new BufferedInputStream(inputStream, 8192);
-
-        ByteArrayOutputStream headerBuffer = new ByteArrayOutputStream();
-        int b;
-        int matchIndex = 0;
-        byte[] endMarker = "\r\n\r\n".getBytes(StandardCharsets.UTF_8);
-
-        // Read the HTTP headers until the end marker (\r\n\r\n) is reached
-         while ((b = bufferedStream.read()) != -1) {
-            headerBuffer.write(b);
-
-            if (b == endMarker[matchIndex]) {
-                matchIndex++;
-                if (matchIndex == endMarker.length) {
-                    break; // End of headers section
-                }
-            } else {
-                matchIndex = 0;
-            }
+    public HttpRequest parse(ConnectionInput in) throws IOException {
+        int headEnd = in.readHead();
+        if (headEnd == -1) return null;
+
+        byte[] buf = in.buffer();
+        int pos = in.position();
+        // The head ends with \r\n\r\n, lines are scanned up to the last \r\n
+        int end = headEnd - 2;
+
+        // Parse the request line (it is like "POST /api/v1/files/upload HTTP/1.1" and so on)
+        int lineEnd = indexOf(buf, pos, end, (byte) '\r');
+        int methodEnd = indexOf(buf, pos, lineEnd, (byte) ' ');
+        if (methodEnd == -1) {
+            in.consumeTo(headEnd);
+            return null;
+        }
+        int targetStart = methodEnd + 1;
+        int targetEnd = indexOf(buf, targetStart, lineEnd, (byte) ' ');
+        if (targetEnd == -1) targetEnd = lineEnd;
+        if (targetEnd == targetStart) {
+            in.consumeTo(headEnd);
+            return null;
         }
 
-        String headerSection = headerBuffer.toString(StandardCharsets.UTF_8);
-        String[] lines = headerSection.split("\r\n");
-
-        // Parse the request line (it is like "POST /api/v1/files/upload" and so on)
-        if (lines.length == 0) return null;
-        String requestLine = lines[0];
-        String[] parts = requestLine.split(" ");
-        if (parts.length < 2) return null;
-
-        String method = parts[0].toUpperCase();
-        String fullPath = parts[1];
-        String path = fullPath.split("\\?")[0];
+        String method = KnownHeaders.method(buf, pos, methodEnd);
+        String fullPath = new String(buf, targetStart, targetEnd - targetStart, StandardCharsets.UTF_8);
+        int queryIndex = fullPath.indexOf('?');
+        String path = queryIndex == -1 ? fullPath : fullPath.substring(0, queryIndex);
         Map<String, String> queryParam = parseQueryParams(fullPath);
 
-        //Parse all other header lines into a Map
+        //Parse all other header lines into a Map, names interned against the known-header table
         Map<String, String> headers = new HashMap<>();
-        for (int i = 1; i < lines.length; i++) {
-            String line = lines[i].trim();
-            if (line.isEmpty()) continue;
-
-            int idx = line.indexOf(":");
-            if (idx > 0) {
-                headers.put(line.substring(0, idx).trim().toLowerCase(),// header name
-                        line.substring(idx + 1).trim());      // header value
+        int lineStart = lineEnd + 2;
+        while (lineStart < end) {
+            lineEnd = indexOf(buf, lineStart, end, (byte) '\r');
+            if (lineEnd == -1) lineEnd = end;
+
+            int colon = indexOf(buf, lineStart, lineEnd, (byte) ':');
+            if (colon > lineStart) {
+                int nameEnd = colon;
+                while (nameEnd > lineStart && buf[nameEnd - 1] == ' ') nameEnd--;
+                int valueStart = colon + 1;
+                int valueEnd = lineEnd;
+                while (valueStart < valueEnd && (buf[valueStart] == ' ' || buf[valueStart] == '\t')) valueStart++;
+                while (valueEnd > valueStart && (buf[valueEnd - 1] == ' ' || buf[valueEnd - 1] == '\t')) valueEnd--;
+
+                headers.put(KnownHeaders.name(buf, lineStart, nameEnd),// header name
+                        new String(buf, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8));      // header value
             }
+            lineStart = lineEnd + 2;
+        }
+        in.consumeTo(headEnd);
+
+        if (headers.containsKey("transfer-encoding")) {
+            // Not framed by Content-Length (which it overrides), so nothing of it is read: the server answers
+            // 411 and closes the connection rather than parse the body as the next request
+            return new HttpRequest(method, path, headers, "", new HashMap<>(), queryParam);
         }
 
         /* Determine body type
             Check if the request is multipart/form-data (file upload)
         */
         if (isMultipart(headers)) {
-            return parseMultipartStreaming(bufferedStream, method, fullPath, headers);
+            // The body stays on the connection until the handler pulls its parts
+            if (extractBoundary(headers.get("content-type")) == null) throw new IOException("Missing multipart boundary");
+            MultipartParts multipart = new MultipartParts(bodyStream(in, headers), headers, tempDirectory);
+            return new HttpRequest(method, path, headers, "", new HashMap<>(), queryParam, multipart);
+        } else if (isBinary(headers) && isBodyExpected(method)) {
+            // Streamed by the handler, never held in memory whole
+            ConnectionBody rawBody = new ConnectionBody(bodyStream(in, headers), headers);
+            return new HttpRequest(method, path, headers, "", new HashMap<>(), queryParam, null, rawBody);
         } else {
             // Otherwise, parse it as a normal text body
-            String body = parseTextBody(bufferedStream, method, headers);
-            // return new HttpRequest(method, fullPath, headers, body, new HashMap<>(),queryParam);
+            String body = parseTextBody(in, method, headers);
             return new HttpRequest(method, path, headers, body, new HashMap<>(),queryParam);
         }
     }
 
+    private static int indexOf(byte[] buf, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == b) return i;
+        }
+        return -1;
+    }
+
     /**
-     * Parses multipart/form-data requests using Apache Commons FileUpload's streaming API.
-     * This approach avoids loading entire files into memory at once.
+     * Limits body reads to Content-Length so that multipart parsing cannot swallow the next pipelined request.
      */
-    private HttpRequest  parseMultipartStreaming(InputStream inputStream,
-                                                 String method, String path,
-                                                 Map<String, String> headers) throws IOException {
-        String boundary = extractBoundary(headers.get("content-type"));
-        if (boundary == null) throw new IOException("Missing multipart boundary");
-
-        Map<String, Object> parts = new HashMap<>();
-
-        try {
-            RequestContext requestContext = new InputStreamRequestContext(inputStream, headers);
-
-            FileUpload upload = new FileUpload();
-            upload.setFileSizeMax(MAX_FILE_SIZE);
-            upload.setSizeMax(MAX_FILE_SIZE);
-
-            FileItemIterator iterator = upload.getItemIterator(requestContext);
-
-
-            while (iterator.hasNext()) {
-                FileItemStream item = iterator.next();
-                String fieldName = item.getFieldName();
-
-                if (item.isFormField()) {
-                    // Simple form field — read as text
-                    String value = Streams.asString(item.openStream(), StandardCharsets.UTF_8.name());
-                    parts.put(fieldName, value);
-                } else {
-                    // File upload — stream the file to a temporary location
-                    String fileName = item.getName();
-
-                    // Create a temp file to store the uploaded content
-                    Path tempFile = Files.createTempFile(tempDirectory, "upload-", ".tmp");
-                    long bytesWritten = 0;
-
-                    // Copy file data from the upload stream to the temp file
-                    try (InputStream fileStream = item.openStream();
-                         FileOutputStream fos = new FileOutputStream(tempFile.toFile())) {
-
-                        // copy file in 1 thread - only 8KB buffer in memory
-                        byte[] buffer = new byte[8192];
-                        int bytesRead;
-                        while ((bytesRead = fileStream.read(buffer)) != -1) {
-                            fos.write(buffer, 0, bytesRead);
-                            bytesWritten += bytesRead;
-                        }
-                    }
-                    // Wrap the temp file in a TempFileInputStream for later cleanup
-                    parts.put(fieldName, new TempFileInputStream(tempFile, fileName, bytesWritten));
-                }
-            }
-        } catch (FileUploadException e) {
-            throw new IOException("Multipart parsing failed", e);
+    private InputStream bodyStream(ConnectionInput in, Map<String, String> headers) {
+        String length = headers.get("content-length");
+        if (length == null) {
+            return in;
         }
-
-        // Return a constructed HttpRequest object with parsed form data
-        return new HttpRequest(method, path, headers, "", parts,new HashMap<>());
+        BoundedInputStream bounded = new BoundedInputStream(in, Long.parseLong(length.trim()));
+        bounded.setPropagateClose(false);
+        return bounded;
     }
 
     /**
      * Reads plain text request bodies (non-multipart).
+     * A body sent with a method that takes none is still read off the connection and dropped,
+     * so its bytes are never parsed as a pipelined request.
      */
     private String parseTextBody(InputStream inputStream, String method,
                                  Map<String, String> headers) throws IOException {
-        if (!isBodyExpected(method) || !headers.containsKey("content-length")) return "";
+        if (!headers.containsKey("content-length")) return "";
 
-        int length = Integer.parseInt(headers.get("content-length"));
+        long contentLength = Long.parseLong(headers.get("content-length").trim());
+        if (contentLength < 0) {
+            throw new IOException("Invalid Content-Length: " + contentLength);
+        }
+        if (!isBodyExpected(method)) {
+            inputStream.skipNBytes(contentLength);
+            return "";
+        }
+
+        int length = Math.toIntExact(contentLength);
         byte[] buffer = new byte[length];
 
         int totalRead = 0;
@@ -196,6 +184,14 @@ public class HttpRequestParser {
     private boolean isMultipart(Map<String, String> headers) {
         return headers.containsKey("content-type") && headers.get("content-type").contains("multipart/form-data");
     }
+    /**
+     * Checks if the body is raw bytes (application/octet-stream, or the application/offset+octet-stream of tus clients).
+     */
+    private boolean isBinary(Map<String, String> headers) {
+        String contentType = headers.get("content-type");
+        return contentType != null && (contentType.startsWith("application/octet-stream")
+                || contentType.startsWith("application/offset+octet-stream"));
+    }
     /**
      * Extracts the multipart boundary string from the Content-Type header.
      */
@@ -0,0 +1,100 @@
+package com.file_exchange.handlers.dispatcher;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Interning tables for HttpRequestParser. Header names and methods that match a known entry
+ * (case-insensitively) resolve to a shared constant instead of a freshly allocated String.
+ */
+final class KnownHeaders {
+    private static final String[] HEADERS = {
+            "host", "connection", "content-type", "content-length", "authorization",
+            "accept", "accept-encoding", "accept-language", "accept-charset", "user-agent",
+            "range", "if-range", "if-none-match", "if-modified-since", "if-match",
+            "cache-control", "pragma", "cookie", "origin", "referer", "expect", "upgrade",
+            "transfer-encoding", "keep-alive", "x-forwarded-for", "x-forwarded-proto",
+            "x-forwarded-host", "x-real-ip", "dnt", "te",
+            "sec-fetch-site", "sec-fetch-mode", "sec-fetch-dest", "sec-ch-ua",
+            "sec-ch-ua-mobile", "sec-ch-ua-platform", "upgrade-insecure-requests"
+    };
+    private static final String[] METHODS = {"GET", "POST", "PUT", "PATCH", "DELETE", "HEAD", "OPTIONS"};
+    // Stored lower-case so methods share the header comparison
+    private static final byte[][] METHOD_BYTES = new byte[METHODS.length][];
+
+    // Known names bucketed by length so a lookup compares against only a handful of candidates
+    private static final byte[][][] HEADER_BYTES;
+    private static final String[][] HEADER_NAMES;
+    private static final int MAX_LENGTH = 32;
+
+    static {
+        for (int m = 0; m < METHODS.length; m++) {
+            METHOD_BYTES[m] = METHODS[m].toLowerCase().getBytes(StandardCharsets.US_ASCII);
+        }
+
+        HEADER_BYTES = new byte[MAX_LENGTH + 1][][];
+        HEADER_NAMES = new String[MAX_LENGTH + 1][];
+        for (int len = 0; len <= MAX_LENGTH; len++) {
+            int count = 0;
+            for (String h : HEADERS) if (h.length() == len) count++;
+            HEADER_BYTES[len] = new byte[count][];
+            HEADER_NAMES[len] = new String[count];
+            int i = 0;
+            for (String h : HEADERS) {
+                if (h.length() == len) {
+                    HEADER_BYTES[len][i] = h.getBytes(StandardCharsets.US_ASCII);
+                    HEADER_NAMES[len][i] = h;
+                    i++;
+                }
+            }
+        }
+    }
+
+    private KnownHeaders() {
+    }
+
+    /**
+     * Lower-case header name for buf[from, to).
+     */
+    static String name(byte[] buf, int from, int to) {
+        int len = to - from;
+        if (len <= MAX_LENGTH) {
+            byte[][] candidates = HEADER_BYTES[len];
+            for (int c = 0; c < candidates.length; c++) {
+                if (equalsIgnoreCase(candidates[c], buf, from)) {
+                    return HEADER_NAMES[len][c];
+                }
+            }
+        }
+        // Unknown header: lower-case while copying
+        char[] chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            chars[i] = (char) toLower(buf[from + i] & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Upper-case method token for buf[from, to).
+     */
+    static String method(byte[] buf, int from, int to) {
+        for (int m = 0; m < METHODS.length; m++) {
+            if (METHOD_BYTES[m].length == to - from && equalsIgnoreCase(METHOD_BYTES[m], buf, from)) {
+                return METHODS[m];
+            }
+        }
+        return new String(buf, from, to - from, StandardCharsets.US_ASCII).toUpperCase();
+    }
+
+    private static boolean equalsIgnoreCase(byte[] known, byte[] buf, int from) {
+        for (int i = 0; i < known.length; i++) {
+            if (toLower(buf[from + i] & 0xFF) != known[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int toLower(int b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+}
@@ -1,115 +1,149 @@
 package com.file_exchange.handlers.dispatcher;
 
-import com.file_exchange.annotations.*;
+import com.file_exchange.handlers.ArgumentBinder;
+import com.file_exchange.handlers.HandlerMethod;
+import com.file_exchange.handlers.HandlerParameter;
+import com.file_exchange.handlers.utilsFiles.StreamingPart;
 import com.file_exchange.handlers.utilsFiles.TempFileInputStream;
 import com.file_exchange.http.HttpRequest;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
-
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Method;
-import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.function.Function;
 
 /**
- * Binds parameters to method arguments using annotations
+ * Binds request data to handler arguments.
+ * Each route gets a binding plan at registration: one small ArgumentBinder per parameter with the
+ * header name already lower-cased, the value converter and JSON reader already chosen, and the
+ * position of every path variable already known. Binding a request is then a loop over the plan.
  */
 public class ParameterBinder {
+    private static final ArgumentBinder NULL_BINDER = request -> null;
+
     private final ObjectMapper objectMapper;
 
     public ParameterBinder(ObjectMapper objectMapper) {
         this.objectMapper = objectMapper;
     }
 
-    public Object[] bindParameters(Method method, HttpRequest request,String mappingPath) throws IOException {
-        var params = method.getParameters();
-        Object[] args = new Object[params.length];
-        Map<String, String> queryParams = request.getQueryParams();
-        Map<String, String> pathVariables = extractPathVariables(mappingPath, request.getPath());
+    public Object[] bindParameters(HandlerMethod handler, HttpRequest request) throws IOException {
+        ArgumentBinder[] plan = handler.getBindingPlan();
+        if (plan == null) {
+            plan = compile(handler);
+            handler.setBindingPlan(plan);
+        }
 
-        for (int i = 0; i < params.length; i++) {
-            if (params[i].isAnnotationPresent(CustomRequestBody.class)) {
-                args[i] = bindBody(request.getBody(), params[i].getType());
-            } else if (params[i].isAnnotationPresent(CustomRequestParam.class)) {
-                String name = params[i].getAnnotation(CustomRequestParam.class).value();
-                args[i] = convertValue(queryParams.get(name), params[i].getType());
-            } else if (params[i].isAnnotationPresent(CustomPathVariable.class)) {
-                String name = params[i].getAnnotation(CustomPathVariable.class).value();
-                args[i] = convertValue(pathVariables.get(name), params[i].getType());
-            }else if (params[i].isAnnotationPresent(CustomRequestHeader.class)){
-                String name = params[i].getAnnotation(CustomRequestHeader.class).value().toLowerCase(); // .toLowerCase()
-                args[i] = request.getHeaders().get(name);
-            }else if (params[i].isAnnotationPresent(CustomRequestPart.class)) {
-                String name = params[i].getAnnotation(CustomRequestPart.class).value();
+        Object[] args = new Object[plan.length];
+        for (int i = 0; i < plan.length; i++) {
+            args[i] = plan[i].bind(request);
+        }
+        return args;
+    }
 
-                if (params[i].getType() == InputStream.class) {
-                    args[i] = request.getPartAsStream(name);
-                } else if (params[i].getType() == String.class) {
-                    args[i] = request.getPartAsString(name);
-                } else if (params[i].getType() == Long.class || params[i].getType() == long.class) {
-                    args[i] = request.getPartAsLong(name);
-                }else if (params[i].getType() == TempFileInputStream.class){
-                    args[i] = request.getPartAsTempFile(name);
-                } else {
-                    throw new IllegalArgumentException("Unsupported type for @CustomRequestPart: " + params[i].getType().getName());
-                }
-            }
+    /**
+     * Builds the binding plan of a route. Unsupported parameter types fail here, at registration.
+     */
+    public ArgumentBinder[] compile(HandlerMethod handler) {
+        HandlerParameter[] params = handler.getParameters();
+        ArgumentBinder[] plan = new ArgumentBinder[params.length];
+        for (int i = 0; i < params.length; i++) {
+            plan[i] = binderFor(params[i], handler.getPath());
         }
+        return plan;
+    }
 
-        return args;
+    private ArgumentBinder binderFor(HandlerParameter param, String mappingPath) {
+        String name = param.getName();
+        Class<?> type = param.getType();
+        Function<String, Object> converter = converterFor(type);
+
+        return switch (param.getSource()) {
+            case BODY -> bodyBinder(type);
+            case QUERY_PARAM -> request -> convert(request.getQueryParams().get(name), converter);
+            case PATH_VARIABLE -> pathVariableBinder(mappingPath, name, converter);
+            case HEADER -> {
+                String headerName = name.toLowerCase();
+                yield request -> request.getHeaders().get(headerName);
+            }
+            case PART -> partBinder(name, type);
+            case METHOD -> HttpRequest::getMethod;
+            case NONE -> NULL_BINDER;
+        };
     }
 
-    private Object bindBody(String body, Class<?> type) throws IOException {
-        if (body == null || body.isEmpty()) {
-            return null;
+    private ArgumentBinder bodyBinder(Class<?> type) {
+        if (type == InputStream.class) {
+            // Binary bodies stay on the connection; other bodies were already read as text
+            return request -> request.getRawBody() != null ? request.getRawBody()
+                    : new ByteArrayInputStream(request.getBody().getBytes(StandardCharsets.UTF_8));
         }
         if (type == String.class) {
-            return body;
+            return request -> {
+                String body = request.getBody();
+                return body == null || body.isEmpty() ? null : body;
+            };
         }
-        return objectMapper.readValue(body, type);
+        ObjectReader reader = objectMapper.readerFor(type);
+        return request -> {
+            String body = request.getBody();
+            return body == null || body.isEmpty() ? null : reader.readValue(body);
+        };
     }
 
-    private Object convertValue(String value, Class<?> type) {
-        if (value == null) {
-            return null;
-        }
-        if (type == Integer.class || type == int.class) {
-            return Integer.parseInt(value);
+    private ArgumentBinder partBinder(String name, Class<?> type) {
+        if (type == InputStream.class) {
+            return request -> request.getPartAsStream(name);
+        } else if (type == String.class) {
+            return request -> request.getPartAsString(name);
         } else if (type == Long.class || type == long.class) {
-            return Long.parseLong(value);
-        } else if (type == Double.class || type == double.class) {
-            return Double.parseDouble(value);
-        } else if (type == Boolean.class || type == boolean.class) {
-            return Boolean.parseBoolean(value);
+            return request -> request.getPartAsLong(name);
+        } else if (type == TempFileInputStream.class) {
+            return request -> request.getPartAsTempFile(name);
+        } else if (type == StreamingPart.class) {
+            // Bound without reading anything - the handler pulls the part from the connection
+            return request -> request.getPartAsStreamingPart(name);
         }
-        return value;
+        throw new IllegalArgumentException("Unsupported type for @CustomRequestPart: " + type.getName());
     }
 
-
-    private Map<String, String> extractPathVariables(String mappingPath, String requestPath) {
-        Map<String, String> variables = new HashMap<>();
-
-        String[] mappingParts = mappingPath.split("/");
-        String cleanRequestPath = extractPathWithoutQuery(requestPath);
-        String[] requestParts = cleanRequestPath.split("/");
-
-        if (mappingParts.length != requestParts.length) {
-            return variables;
-        }
-
-        for (int i = 0; i < mappingParts.length; i++) {
-            if (mappingParts[i].startsWith("{") && mappingParts[i].endsWith("}")) {
-                String varName = mappingParts[i].substring(1, mappingParts[i].length() - 1);
-                variables.put(varName, requestParts[i]);
+    /**
+     * Path variables are captured by the Router; the binder only needs the variable's position in the route.
+     */
+    private ArgumentBinder pathVariableBinder(String mappingPath, String name, Function<String, Object> converter) {
+        int ordinal = 0;
+        for (String part : mappingPath.split("/")) {
+            if (part.equals("{" + name + "}")) {
+                int index = ordinal;
+                return request -> {
+                    String[] values = request.getPathVariables();
+                    return index < values.length ? convert(values[index], converter) : null;
+                };
+            }
+            if (part.startsWith("{") && part.endsWith("}")) {
+                ordinal++;
             }
         }
-        return variables;
+        return NULL_BINDER;
     }
 
-    private String extractPathWithoutQuery(String rawPath) {
-        return rawPath.contains("?") ? rawPath.substring(0, rawPath.indexOf("?")) : rawPath;
+    private static Object convert(String value, Function<String, Object> converter) {
+        return value == null ? null : converter.apply(value);
+    }
+
+    private static Function<String, Object> converterFor(Class<?> type) {
+        if (type == Integer.class || type == int.class) {
+            return Integer::parseInt;
+        } else if (type == Long.class || type == long.class) {
+            return Long::parseLong;
+        } else if (type == Double.class || type == double.class) {
+            return Double::parseDouble;
+        } else if (type == Boolean.class || type == boolean.class) {
+            return Boolean::parseBoolean;
+        }
+        return value -> value;
     }
 }
@@ -6,45 +6,64 @@ import com.file_exchange.http.HttpResponse;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.SneakyThrows;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * // Entry point class that orchestrates request handling (SRP: Coordination only).
  */
 public class RequestDispatcher {
+    private final Map<String, HandlerMethod> routeHandlers;
     private final Router router;
     private final ParameterBinder parameterBinder;
     private final ResponseConverter responseConverter;
+    private final ByteRangeHandler byteRangeHandler;
 
     public RequestDispatcher(Map<String, HandlerMethod> routeHandlers, ObjectMapper objectMapper) {
-        this.router = new Router(routeHandlers);
+        this.routeHandlers = routeHandlers;
+        this.router = new Router();
         this.parameterBinder = new ParameterBinder(objectMapper);
         this.responseConverter = new ResponseConverter(objectMapper);
+        this.byteRangeHandler = new ByteRangeHandler();
+    }
+
+    /**
+     * Adds a route and compiles its parameter binding plan.
+     */
+    public void registerHandler(HandlerMethod handler) {
+        handler.setBindingPlan(parameterBinder.compile(handler));
+        routeHandlers.put(handler.getHttpMethod() + ":" + handler.getPath(), handler);
+        router.addRoute(handler);
     }
 
     @SneakyThrows
     public HttpResponse handleRequest(HttpRequest request) {
         try {
             // Find matching handler
-            HandlerMethod handler = router.findHandler(request.getMethod(), request.getPath());
-            if (handler == null) {
-                return HttpResponse.notFound();
+            Router.RouteMatch match = router.findHandler(request.getMethod(), request.getPath());
+            if (match == null) {
+                Set<String> allowed = router.allowedMethods(request.getPath());
+                return allowed.isEmpty() ? HttpResponse.notFound() : HttpResponse.methodNotAllowed(allowed);
             }
-            // Bind parameters and invoke method
-            Object[] args = parameterBinder.bindParameters(handler.getMethod(), request, handler.getPath());
-            Object result = handler.getMethod().invoke(handler.getController(), args);
-            // Convert result to response
-            return responseConverter.convertToResponse(result);
-        } catch (InvocationTargetException e) {
-            Throwable cause = e.getCause();
-            if (cause instanceof IllegalArgumentException) {
-                return HttpResponse.badRequest(cause.getMessage());
+            HandlerMethod handler = match.handler();
+            request.setPathVariables(match.pathVariables());
+            // Bind parameters
+            Object[] args;
+            try {
+                args = parameterBinder.bindParameters(handler, request);
+            } catch (IllegalArgumentException e) {
+                return HttpResponse.badRequest("Invalid parameter types: " + e.getMessage());
             }
-            cause.printStackTrace();
-            return HttpResponse.serverError();
-        } catch (IllegalArgumentException e) {
-            return HttpResponse.badRequest("Invalid parameter types: " + e.getMessage());
+            // Invoke the handler directly through its invoker
+            Object result;
+            try {
+                result = handler.getInvoker().invoke(args);
+            } catch (IllegalArgumentException e) {
+                return HttpResponse.badRequest(e.getMessage());
+            }
+            // Convert result to response, narrowing file bodies to the requested Range
+            HttpResponse response = responseConverter.convertToResponse(result);
+            return byteRangeHandler.apply(request, response);
         } catch (Exception e) {
             e.printStackTrace();
             return HttpResponse.serverError();
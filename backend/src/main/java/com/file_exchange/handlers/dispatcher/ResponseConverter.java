@@ -1,10 +1,20 @@
 package com.file_exchange.handlers.dispatcher;
 
+import com.file_exchange.dto.Conditional;
+import com.file_exchange.dto.FileArchiveDto;
 import com.file_exchange.dto.FileDto;
 import com.file_exchange.handlers.utilsFiles.MimeTypeUtils;
+import com.file_exchange.http.CompressedFileBody;
+import com.file_exchange.http.FileRegionBody;
 import com.file_exchange.http.HttpResponse;
+import com.file_exchange.http.JsonBody;
+import com.file_exchange.http.ZipArchiveBody;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.io.IOException;
 import java.io.InputStream;
@@ -22,24 +32,48 @@ public class ResponseConverter {
     public HttpResponse convertToResponse(Object result) throws IOException {
         if (result == null) {
             return HttpResponse.ok("".getBytes(), "text/plain");
+        } else if (result instanceof Conditional<?> conditional) {
+            Map<String, String> validators = new HashMap<>();
+            if (conditional.getETag() != null) {
+                validators.put("ETag", conditional.getETag());
+            }
+            if (conditional.getLastModified() != null) {
+                validators.put("Last-Modified", httpDate(conditional.getLastModified()));
+            }
+            if (conditional.isNotModified()) {
+                return HttpResponse.notModified(validators);
+            }
+            HttpResponse response = convertToResponse(conditional.getBody());
+            response.getHeaders().putAll(validators);
+            return response;
         } else if (result instanceof String str) {
             return HttpResponse.ok(str.getBytes(), "text/plain");
         } else if (result instanceof byte[] bytes) {
             return HttpResponse.ok(bytes, "application/octet-stream");
         }else if(result instanceof FileDto fd){
-            try (InputStream is = fd.getInputStream()) {
-                byte[] data = is.readAllBytes();
-
-                Map<String, String> headers = new HashMap<>();
-                String filename = (fd.getFileName() != null && !fd.getFileName().isBlank())
-                        ? fd.getFileName() : "download";
-                headers.put("Content-Disposition", "attachment; filename=\"" + filename + "\"");
+            // The file itself is streamed by the server with transferTo (or from the content cache), nothing is read here
+            Map<String, String> headers = new HashMap<>();
+            String filename = (fd.getFileName() != null && !fd.getFileName().isBlank())
+                    ? fd.getFileName() : "download";
+            headers.put("Content-Disposition", "attachment; filename=\"" + filename + "\"");
+            if (fd.getLastModified() != null) {
+                headers.put("Last-Modified", httpDate(fd.getLastModified()));
+            }
 
-                String contentType = (fd.getContentType() != null && !fd.getContentType().isBlank())
-                        ? fd.getContentType() : MimeTypeUtils.detect(fd.getFileName());
+            String contentType = (fd.getContentType() != null && !fd.getContentType().isBlank())
+                    ? fd.getContentType() : MimeTypeUtils.detect(fd.getFileName());
 
-                return HttpResponse.ok(data, contentType, headers);
+            if (fd.getCodec() != null) {
+                // Whether it goes out compressed depends on the client's Accept-Encoding
+                headers.put("Vary", "Accept-Encoding");
+                return HttpResponse.ok(new CompressedFileBody(fd.getFilePath(), fd.getSize(), fd.getCodec()), contentType, headers);
             }
+            return HttpResponse.ok(new FileRegionBody(fd.getFilePath(), 0, fd.getSize(), fd.getContent()), contentType, headers);
+        }else if(result instanceof FileArchiveDto archive){
+            // Zipped on the fly while the response is written
+            Map<String, String> headers = new HashMap<>();
+            headers.put("Content-Disposition", "attachment; filename=\"" + archive.getArchiveName() + "\"");
+            return HttpResponse.ok(new ZipArchiveBody(archive.getFiles()), "application/zip", headers);
         }else if(result instanceof InputStream in){
             // fallback: if somewhere else they return a clean stream
             try (InputStream is = in) {
@@ -48,9 +82,15 @@ public class ResponseConverter {
                 headers.put("Content-Disposition", "attachment; filename=\"download\"");
                 return HttpResponse.ok(data, "application/octet-stream", headers);
             }
+        } else if (result instanceof Collection<?> || result.getClass().isArray()) {
+            // Listings can be arbitrarily long: serialize them straight to the connection
+            return HttpResponse.ok(new JsonBody(result, objectMapper), "application/json", null);
         } else {
-            String json = objectMapper.writeValueAsString(result);
-            return HttpResponse.ok(json.getBytes(), "application/json");
+            return HttpResponse.ok(objectMapper.writeValueAsBytes(result), "application/json");
         }
     }
+
+    private static String httpDate(Instant instant) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(instant.truncatedTo(ChronoUnit.SECONDS).atZone(ZoneOffset.UTC));
+    }
 }
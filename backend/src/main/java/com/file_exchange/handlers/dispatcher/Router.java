@@ -1,78 +1,261 @@
 package com.file_exchange.handlers.dispatcher;
 
 import com.file_exchange.handlers.HandlerMethod;
+import com.file_exchange.handlers.HandlerParameter;
 
-import java.util.Map;
+import java.util.*;
 
 /**
  * Handles route matching, including path variables.
+ * Routes live in one segment trie per HTTP method, so a lookup walks the request path once,
+ * comparing each segment in place against the children of the current node.
+ * Static segments win over path variables; typed variables (Integer/Long) only match numeric segments
+ * and are tried before untyped ones. When a static branch dead-ends the walk backtracks to the variables.
  */
 public class Router {
-    private final Map<String, HandlerMethod> routeHandlers;
+    private static final String[] NO_VARIABLES = new String[0];
 
-    public Router(Map<String, HandlerMethod> routeHandlers) {
-        this.routeHandlers = routeHandlers;
+    private final Map<String, Node> trees = new HashMap<>();
+
+    /**
+     * Adds a route. A route registered again for the same method and path replaces the previous one.
+     */
+    public synchronized void addRoute(HandlerMethod handler) {
+        Node node = trees.computeIfAbsent(handler.getHttpMethod(), m -> new Node(null));
+        int variables = 0;
+        for (String segment : segments(handler.getPath())) {
+            if (isPathVariable(segment)) {
+                String name = segment.substring(1, segment.length() - 1);
+                node = node.variableChild(name, VariableType.of(handler, name));
+                variables++;
+            } else {
+                node = node.staticChild(segment);
+            }
+        }
+        node.handler = handler;
+        node.variableCount = variables;
     }
 
-    public HandlerMethod findHandler(String method, String rawPath) {
+    /**
+     * Finds the route for a request. Path variable values are returned in the order they appear in the route.
+     * Returns null when nothing matches for this method.
+     */
+    public RouteMatch findHandler(String method, String rawPath) {
+        RouteMatch match = find(trees.get(method), rawPath);
+        if (match == null && "HEAD".equals(method)) {
+            // Every GET route answers HEAD too; the server sends its headers without the body
+            return find(trees.get("GET"), rawPath);
+        }
+        return match;
+    }
+
+    private RouteMatch find(Node root, String rawPath) {
+        if (root == null) {
+            return null;
+        }
         String path = extractPathWithoutQuery(rawPath);
-        String key = method + ":" + path;
-        HandlerMethod handler = routeHandlers.get(key);
-        if (handler != null) {
-            return handler;
-        }
-        // Check for path variable matches
-        for (Map.Entry<String, HandlerMethod> entry : routeHandlers.entrySet()) {
-            String routeKey = entry.getKey();
-            String routeMethod = extractMethodFromKey(routeKey);
-            String routePath = extractPathFromKey(routeKey);
-            if (matchesPath(method, path, routeMethod, routePath)) {
-                return entry.getValue();
+        Match match = new Match(path);
+        if (!match.walk(root, firstSegmentStart(path), 0)) {
+            return null;
+        }
+        return new RouteMatch(match.handler, match.variables != null ? match.variables : NO_VARIABLES);
+    }
+
+    /**
+     * Methods that have a route for this path, used for 405 responses. Empty when the path is unknown.
+     */
+    public Set<String> allowedMethods(String rawPath) {
+        String path = extractPathWithoutQuery(rawPath);
+        Set<String> allowed = new TreeSet<>();
+        for (Map.Entry<String, Node> tree : trees.entrySet()) {
+            if (new Match(path).walk(tree.getValue(), firstSegmentStart(path), 0)) {
+                allowed.add(tree.getKey());
             }
         }
-        return null;
+        if (allowed.contains("GET")) {
+            allowed.add("HEAD");
+        }
+        return allowed;
     }
 
     private String extractPathWithoutQuery(String rawPath) {
         if (rawPath == null || rawPath.isEmpty()) {
             return "/";
         }
-        return rawPath.contains("?") ? rawPath.substring(0, rawPath.indexOf("?")) : rawPath;
+        int query = rawPath.indexOf('?');
+        return query != -1 ? rawPath.substring(0, query) : rawPath;
     }
 
-    private String extractMethodFromKey(String key) {
-        return key.substring(0, key.indexOf(":"));
+    private static int firstSegmentStart(String path) {
+        return path.startsWith("/") ? 1 : 0;
     }
 
-    private String extractPathFromKey(String key) {
-        return key.substring(key.indexOf(":") + 1);
+    /**
+     * Route path segments; the leading and trailing "/" are ignored, like the request side does.
+     */
+    private static List<String> segments(String routePath) {
+        List<String> result = new ArrayList<>();
+        if (routePath == null) {
+            return result;
+        }
+        String trimmed = routePath.startsWith("/") ? routePath.substring(1) : routePath;
+        if (trimmed.endsWith("/")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        if (!trimmed.isEmpty()) {
+            result.addAll(Arrays.asList(trimmed.split("/", -1)));
+        }
+        return result;
     }
 
-    private boolean matchesPath(String requestMethod, String requestPath, String routeMethod, String routePath) {
-        if (!requestMethod.equals(routeMethod)) {
-            return false;
-        }
+    private static boolean isPathVariable(String part) {
+        return part.length() > 2 && part.startsWith("{") && part.endsWith("}");
+    }
+
+    /**
+     * A matched route and its captured path variables.
+     */
+    public record RouteMatch(HandlerMethod handler, String[] pathVariables) {
+    }
 
-        if (requestPath.isEmpty()) requestPath = "/";
-        if (routePath.isEmpty()) routePath = "/";
+    /**
+     * What a path variable segment may contain, inferred from the type of its @CustomPathVariable parameter.
+     */
+    enum VariableType {
+        INTEGER,
+        ANY;
 
-        String[] requestParts = requestPath.split("/");
-        String[] routeParts = routePath.split("/");
-        if (requestParts.length != routeParts.length) {
-            return false;
+        static VariableType of(HandlerMethod handler, String name) {
+            for (HandlerParameter param : handler.getParameters()) {
+                if (param.getSource() == HandlerParameter.Source.PATH_VARIABLE && param.getName().equals(name)) {
+                    Class<?> type = param.getType();
+                    if (type == Integer.class || type == int.class || type == Long.class || type == long.class) {
+                        return INTEGER;
+                    }
+                }
+            }
+            return ANY;
         }
-        for (int i = 0; i < routeParts.length; i++) {
-            if (isPathVariable(routeParts[i])) {
-                continue; // Accept any value for variables
+
+        boolean accepts(String path, int from, int to) {
+            if (this == ANY) {
+                return true;
+            }
+            int i = from;
+            if (i < to && path.charAt(i) == '-') {
+                i++;
             }
-            if (!routeParts[i].equals(requestParts[i])) {
+            if (i == to) {
                 return false;
             }
+            for (; i < to; i++) {
+                char c = path.charAt(i);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+            }
+            return true;
         }
-        return true;
     }
 
-    private boolean isPathVariable(String part) {
-        return part.startsWith("{") && part.endsWith("}");
+    private static final class Node {
+        // Literal segment for static nodes, variable name for variable nodes
+        final String segment;
+        VariableType type;
+        Node[] staticChildren = new Node[0];
+        // Typed variables first, so /files/{id} with a Long id is tried before /files/{name}
+        Node[] variableChildren = new Node[0];
+        HandlerMethod handler;
+        int variableCount;
+
+        Node(String segment) {
+            this.segment = segment;
+        }
+
+        Node staticChild(String segment) {
+            for (Node child : staticChildren) {
+                if (child.segment.equals(segment)) {
+                    return child;
+                }
+            }
+            Node child = new Node(segment);
+            staticChildren = append(staticChildren, child);
+            return child;
+        }
+
+        Node variableChild(String name, VariableType type) {
+            for (Node child : variableChildren) {
+                if (child.type == type) {
+                    // One variable node per type at each position; the route's own names come from its parameters
+                    return child;
+                }
+            }
+            Node child = new Node(name);
+            child.type = type;
+            variableChildren = append(variableChildren, child);
+            Arrays.sort(variableChildren, Comparator.comparing(n -> n.type));
+            return child;
+        }
+
+        private static Node[] append(Node[] nodes, Node node) {
+            Node[] bigger = Arrays.copyOf(nodes, nodes.length + 1);
+            bigger[nodes.length] = node;
+            return bigger;
+        }
+    }
+
+    /**
+     * One lookup: walks the trie over the request path without splitting it.
+     */
+    private static final class Match {
+        final String path;
+        final int end;
+        HandlerMethod handler;
+        String[] variables;
+
+        Match(String path) {
+            this.path = path;
+            // A trailing "/" does not start another segment
+            int end = path.length();
+            if (end > 1 && path.charAt(end - 1) == '/') {
+                end--;
+            }
+            this.end = end;
+        }
+
+        boolean walk(Node node, int start, int depth) {
+            if (start >= end) {
+                if (node.handler == null) {
+                    return false;
+                }
+                handler = node.handler;
+                if (node.variableCount > 0) {
+                    variables = new String[node.variableCount];
+                }
+                return true;
+            }
+
+            int slash = path.indexOf('/', start);
+            int segmentEnd = slash == -1 || slash > end ? end : slash;
+            int length = segmentEnd - start;
+
+            for (Node child : node.staticChildren) {
+                if (child.segment.length() == length && path.regionMatches(start, child.segment, 0, length)
+                        && walk(child, segmentEnd + 1, depth)) {
+                    return true;
+                }
+            }
+            if (length == 0) {
+                return false;
+            }
+            for (Node child : node.variableChildren) {
+                if (child.type.accepts(path, start, segmentEnd) && walk(child, segmentEnd + 1, depth + 1)) {
+                    // Filled in on the way back up, so only the successful branch allocates
+                    variables[depth] = path.substring(start, segmentEnd);
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 }
@@ -1,14 +1,85 @@
 package com.file_exchange.handlers.utilsFiles;
 
+import java.util.Set;
+
 public class MimeTypeUtils {
+    // Formats whose content is already compressed, deflating them again only costs CPU
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "png", "jpg", "jpeg", "gif", "webp", "heic", "avif",
+            "mp3", "m4a", "aac", "ogg", "opus", "flac",
+            "mp4", "m4v", "mov", "mkv", "webm", "avi",
+            "zip", "gz", "tgz", "bz2", "xz", "zst", "7z", "rar", "jar", "apk",
+            "docx", "xlsx", "pptx", "odt", "ods", "odp", "epub", "pdf");
+    private static final Set<String> COMPRESSED_TYPES = Set.of(
+            "application/zip", "application/gzip", "application/x-gzip", "application/x-bzip2", "application/x-xz",
+            "application/zstd", "application/x-7z-compressed", "application/vnd.rar", "application/java-archive",
+            "application/pdf", "application/epub+zip");
+
     public static String detect(String filename) {
         if (filename == null) return "application/octet-stream";
         String name = filename.toLowerCase();
         if (name.endsWith(".png")) return "image/png";
         if (name.endsWith(".jpg") || name.endsWith(".jpeg")) return "image/jpeg";
         if (name.endsWith(".pdf")) return "application/pdf";
-        if (name.endsWith(".txt")) return "text/plain; charset=utf-8";
+        if (name.endsWith(".txt") || name.endsWith(".log")) return "text/plain; charset=utf-8";
+        if (name.endsWith(".csv")) return "text/csv; charset=utf-8";
+        if (name.endsWith(".json")) return "application/json";
         if (name.endsWith(".zip")) return "application/zip";
         return "application/octet-stream";
     }
+
+    /**
+     * The type of a file from its first bytes, for the formats whose signature is unambiguous,
+     * or null when the content is not recognised.
+     */
+    public static String sniff(byte[] head, int length) {
+        if (startsWith(head, length, 0x1f, 0x8b)) return "application/gzip";
+        if (startsWith(head, length, 'P', 'K', 3, 4)) return "application/zip";
+        if (startsWith(head, length, 0x89, 'P', 'N', 'G')) return "image/png";
+        if (startsWith(head, length, 0xff, 0xd8, 0xff)) return "image/jpeg";
+        if (startsWith(head, length, 'G', 'I', 'F', '8')) return "image/gif";
+        if (startsWith(head, length, '%', 'P', 'D', 'F')) return "application/pdf";
+        if (startsWith(head, length, '7', 'z', 0xbc, 0xaf)) return "application/x-7z-compressed";
+        if (startsWith(head, length, 0xfd, '7', 'z', 'X', 'Z')) return "application/x-xz";
+        if (startsWith(head, length, 0x28, 0xb5, 0x2f, 0xfd)) return "application/zstd";
+        if (startsWith(head, length, 'B', 'Z', 'h')) return "application/x-bzip2";
+        if (startsWith(head, length, 'R', 'a', 'r', '!')) return "application/vnd.rar";
+        // RIFF holds WebP, WAV and AVI, the ISO media box "ftyp" at offset 4 holds MP4, MOV and HEIC
+        if (startsWith(head, length, 'R', 'I', 'F', 'F')) return "video/x-msvideo";
+        if (length >= 8 && head[4] == 'f' && head[5] == 't' && head[6] == 'y' && head[7] == 'p') return "video/mp4";
+        return null;
+    }
+
+    private static boolean startsWith(byte[] head, int length, int... signature) {
+        if (length < signature.length) return false;
+        for (int i = 0; i < signature.length; i++) {
+            if ((head[i] & 0xff) != signature[i]) return false;
+        }
+        return true;
+    }
+
+    public static boolean isCompressed(String filename) {
+        if (filename == null) return false;
+        int dot = filename.lastIndexOf('.');
+        return dot != -1 && COMPRESSED_EXTENSIONS.contains(filename.substring(dot + 1).toLowerCase());
+    }
+
+    /**
+     * Whether compressing a response of this Content-Type is a waste: media and archive formats,
+     * and unknown binary data, which is usually one of them.
+     */
+    public static boolean isCompressedType(String contentType) {
+        if (contentType == null) return true;
+        String type = contentType.toLowerCase();
+        int semicolon = type.indexOf(';');
+        if (semicolon != -1) {
+            type = type.substring(0, semicolon);
+        }
+        type = type.trim();
+        if (type.equals("image/svg+xml")) return false;
+        return type.startsWith("image/") || type.startsWith("audio/") || type.startsWith("video/")
+                || type.equals("application/octet-stream") || COMPRESSED_TYPES.contains(type)
+                || type.startsWith("application/vnd.openxmlformats-officedocument.")
+                || type.startsWith("application/vnd.oasis.opendocument.");
+    }
 }
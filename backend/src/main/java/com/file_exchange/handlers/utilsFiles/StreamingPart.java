@@ -0,0 +1,65 @@
+package com.file_exchange.handlers.utilsFiles;
+
+import com.file_exchange.http.MultipartParts;
+import org.apache.commons.fileupload.FileItemStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A multipart file part read live from the connection.
+ * Binding it to a handler argument reads nothing; the body is only touched when the handler first asks
+ * for the file name or reads the stream, so a handler that rejects the request first costs no upload I/O.
+ */
+public class StreamingPart extends InputStream {
+    private final MultipartParts multipart;
+    private final String fieldName;
+    private FileItemStream item;
+    private InputStream stream;
+
+    public StreamingPart(MultipartParts multipart, String fieldName) {
+        this.multipart = multipart;
+        this.fieldName = fieldName;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public String getOriginalFileName() {
+        try {
+            open();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to read part '" + fieldName + "': " + e.getMessage(), e);
+        }
+        return item.getName();
+    }
+
+    private void open() throws IOException {
+        if (item != null) return;
+        item = multipart.nextFile(fieldName);
+        if (item == null) {
+            throw new IllegalArgumentException("Missing part: " + fieldName);
+        }
+        stream = item.openStream();
+    }
+
+    @Override
+    public int read() throws IOException {
+        open();
+        return stream.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        open();
+        return stream.read(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
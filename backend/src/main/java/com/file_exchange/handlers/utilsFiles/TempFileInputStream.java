@@ -3,8 +3,10 @@ package com.file_exchange.handlers.utilsFiles;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 
 /**
  * Wrapping a temporary file for later processing
@@ -14,13 +16,32 @@ public class TempFileInputStream extends FileInputStream implements AutoCloseabl
     private final Path tempFilePath;
     private final String originalFileName;
     private final long fileSize;
+    // SHA-256 of the content in hex, when it was computed while staging
+    private final String contentHash;
+    // StorageCodec the temp file is written with, null when it holds the content as uploaded
+    private final String codec;
     private boolean closed = false;
 
     public TempFileInputStream(Path tempFilePath, String originalFileName, long fileSize) throws  FileNotFoundException {
+        this(tempFilePath, originalFileName, fileSize, null);
+    }
+
+    public TempFileInputStream(Path tempFilePath, String originalFileName, long fileSize, String contentHash)
+            throws FileNotFoundException {
+        this(tempFilePath, originalFileName, fileSize, contentHash, null);
+    }
+
+    /**
+     * @param fileSize size of the content, which is not the size of the temp file when it is compressed
+     */
+    public TempFileInputStream(Path tempFilePath, String originalFileName, long fileSize, String contentHash,
+                               String codec) throws FileNotFoundException {
         super(tempFilePath.toFile());
         this.tempFilePath = tempFilePath;
         this.originalFileName = originalFileName;
         this.fileSize = fileSize;
+        this.contentHash = contentHash;
+        this.codec = codec;
     }
 
     public Path getTempFilePath() {
@@ -35,6 +56,34 @@ public class TempFileInputStream extends FileInputStream implements AutoCloseabl
         return fileSize;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public String getCodec() {
+        return codec;
+    }
+
+    /**
+     * Commits the upload: renames the temp file to target, so its bytes are not written a second time.
+     * The temp file is staged on the same filesystem as the uploads, which makes the rename atomic;
+     * a copy is only made if the filesystem cannot rename across the two directories.
+     */
+    public void moveTo(Path target) throws IOException {
+        if (closed) {
+            throw new IOException("Temp file already closed: " + tempFilePath);
+        }
+        closed = true;
+        super.close();
+        try {
+            Files.move(tempFilePath, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFilePath, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFilePath);
+        }
+    }
+
     @Override
     public void close() throws IOException {
         if(!closed) {
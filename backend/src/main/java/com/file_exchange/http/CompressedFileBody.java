@@ -0,0 +1,78 @@
+package com.file_exchange.http;
+
+import com.file_exchange.storage.StorageCodec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A file stored compressed with a StorageCodec. Written as it is, this body sends the decoded content;
+ * the server swaps it for {@link #encoded()} when the client accepts the codec as Content-Encoding.
+ * Byte ranges are counted in decoded bytes: a slice decodes the file from the start and skips to its
+ * offset, so it costs as much CPU as the bytes before it, and it is never sent encoded.
+ */
+public class CompressedFileBody implements StreamingBody {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final long position;
+    private final long count;
+    private final String codec;
+
+    /**
+     * @param size size of the decoded content
+     */
+    public CompressedFileBody(Path path, long size, String codec) {
+        this(path, 0, size, codec);
+    }
+
+    private CompressedFileBody(Path path, long position, long count, String codec) {
+        this.path = path;
+        this.position = position;
+        this.count = count;
+        this.codec = codec;
+    }
+
+    public String getCodec() { return codec; }
+
+    /**
+     * The decoded bytes from offset on, length of them.
+     */
+    public CompressedFileBody slice(long offset, long length) {
+        return new CompressedFileBody(path, position + offset, length, codec);
+    }
+
+    /**
+     * The stored bytes, sent as they are with sendfile. Only the whole content has an encoded form.
+     */
+    public FileRegionBody encoded() throws IOException {
+        return new FileRegionBody(path, 0, Files.size(path));
+    }
+
+    @Override
+    public long contentLength() {
+        return count;
+    }
+
+    @Override
+    public void writeTo(ResponseSink sink) throws IOException {
+        try (InputStream in = StorageCodec.open(path, codec)) {
+            in.skipNBytes(position);
+            OutputStream out = sink.stream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = count;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new EOFException("Stored file is shorter than its recorded size: " + path);
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.file_exchange.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * A request body still unread on the connection when the request is dispatched.
+ * The handler reads it as a stream; whatever it leaves is skipped afterwards so the next request on the
+ * connection starts at the right byte. Closing it does not close the connection.
+ */
+public class ConnectionBody extends FilterInputStream {
+    private final Map<String, String> headers;
+    private Runnable beforeFirstRead;
+    private boolean started = false;
+
+    /**
+     * @param body the request body, limited to Content-Length when the request has one
+     */
+    public ConnectionBody(InputStream body, Map<String, String> headers) {
+        super(body);
+        this.headers = headers;
+    }
+
+    /**
+     * Runs once, right before the first body byte is read - used to send "100 Continue".
+     */
+    public void setBeforeFirstRead(Runnable beforeFirstRead) {
+        this.beforeFirstRead = beforeFirstRead;
+    }
+
+    /**
+     * Reads and throws away whatever the handler left unread. Returns false when the connection cannot be
+     * reused: the body length is unknown, or the client is still waiting for "100 Continue" and will not
+     * send the body at all.
+     */
+    public boolean skipRemaining() throws IOException {
+        if (!started && beforeFirstRead != null) {
+            return false;
+        }
+        if (!headers.containsKey("content-length")) {
+            return false;
+        }
+        in.transferTo(OutputStream.nullOutputStream());
+        return true;
+    }
+
+    private void start() {
+        if (!started) {
+            started = true;
+            if (beforeFirstRead != null) {
+                beforeFirstRead.run();
+            }
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        start();
+        return super.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        start();
+        return super.read(b, off, len);
+    }
+
+    @Override
+    public void close() {
+        // The body belongs to the connection
+    }
+}
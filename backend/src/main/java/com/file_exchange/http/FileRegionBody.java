@@ -0,0 +1,60 @@
+package com.file_exchange.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A byte range of a file on disk. The file is only opened while the body is being written,
+ * and the bytes never pass through the Java heap when the connection supports zero-copy.
+ * When the whole file is held in the content cache, the range is written from that buffer
+ * and the file is not opened at all.
+ */
+public class FileRegionBody implements StreamingBody {
+    private final Path path;
+    private final long position;
+    private final long count;
+    // Read-only copy of the whole file, or null when it has to be read from disk
+    private final ByteBuffer content;
+
+    public FileRegionBody(Path path, long position, long count) {
+        this(path, position, count, null);
+    }
+
+    public FileRegionBody(Path path, long position, long count, ByteBuffer content) {
+        this.path = path;
+        this.position = position;
+        this.count = count;
+        this.content = content;
+    }
+
+    public Path getPath() { return path; }
+
+    public long getPosition() { return position; }
+
+    /**
+     * The part of this region starting at offset, backed by the same file and cached content.
+     */
+    public FileRegionBody slice(long offset, long length) {
+        return new FileRegionBody(path, position + offset, length, content);
+    }
+
+    @Override
+    public long contentLength() {
+        return count;
+    }
+
+    @Override
+    public void writeTo(ResponseSink sink) throws IOException {
+        if (content != null) {
+            // duplicate() keeps the shared buffer's position untouched for concurrent readers
+            sink.write(content.duplicate().limit((int) (position + count)).position((int) position));
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            sink.transferFrom(channel, position, count);
+        }
+    }
+}
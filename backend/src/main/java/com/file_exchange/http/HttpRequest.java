@@ -1,40 +1,102 @@
 package com.file_exchange.http;
 
 import lombok.Getter;
+import lombok.Setter;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.Map;
+import com.file_exchange.handlers.utilsFiles.StreamingPart;
 import com.file_exchange.handlers.utilsFiles.TempFileInputStream;
 import lombok.ToString;
 
 @Getter
 @ToString
 public class HttpRequest {
+    private static final String[] NO_PATH_VARIABLES = new String[0];
+
     private final String method;
     private final String path;
     private final Map<String, String> headers;
     private final String body;
     private final Map<String, Object> parts;//for multipart -  parts
     private final Map<String, String> queryParams;
+    // Unread multipart body, null for other requests - parts are pulled from it on demand
+    private final MultipartParts multipart;
+    // Unread binary (application/octet-stream) body, null for other requests - handlers read it as a stream
+    private final ConnectionBody rawBody;
+    // Path variable values captured by the Router, in the order they appear in the route
+    @Setter
+    private String[] pathVariables = NO_PATH_VARIABLES;
 
     public HttpRequest(String method, String path, Map<String, String> headers, String body, Map<String, Object> parts,Map<String, String> queryParams) {
+        this(method, path, headers, body, parts, queryParams, null);
+    }
+
+    public HttpRequest(String method, String path, Map<String, String> headers, String body, Map<String, Object> parts,
+                       Map<String, String> queryParams, MultipartParts multipart) {
+        this(method, path, headers, body, parts, queryParams, multipart, null);
+    }
+
+    public HttpRequest(String method, String path, Map<String, String> headers, String body, Map<String, Object> parts,
+                       Map<String, String> queryParams, MultipartParts multipart, ConnectionBody rawBody) {
         this.method = method;
         this.path = path;
         this.headers = headers;
         this.body = body;
         this.parts = parts != null ? parts : new HashMap<>();
         this.queryParams = queryParams;
+        this.multipart = multipart;
+        this.rawBody = rawBody;
+    }
+
+    /**
+     * All parts of the request. For a multipart body that is still unread this reads it to the end,
+     * staging every file part.
+     */
+    public Map<String, Object> getParts() {
+        if (multipart != null) {
+            try {
+                parts.putAll(multipart.materialize());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * The named file part as a live stream over the connection, or null for non-multipart requests.
+     */
+    public StreamingPart getPartAsStreamingPart(String partName) {
+        return multipart != null ? new StreamingPart(multipart, partName) : null;
+    }
+
+    /**
+     * Consumes whatever the handler left of the body. Returns whether the connection can serve another request.
+     */
+    public boolean finishBody() throws IOException {
+        ConnectionBody unread = getUnreadBody();
+        return unread == null || unread.skipRemaining();
+    }
+
+    /**
+     * The body left on the connection by the parser (multipart or binary), or null when it was read up front.
+     */
+    public ConnectionBody getUnreadBody() {
+        return multipart != null ? multipart.getBody() : rawBody;
     }
 
 
     public InputStream getPartAsStream(String partName) {
-        Object part = parts.get(partName);
+        Object part = getParts().get(partName);
         return part instanceof InputStream ? (InputStream) part : null;
     }
 
     public String getPartAsString(String partName) {
-        Object part = parts.get(partName);
+        Object part = getParts().get(partName);
         return part instanceof String ? (String) part : null;
     }
 
@@ -44,7 +106,7 @@ public class HttpRequest {
     }
 
     public TempFileInputStream getPartAsTempFile(String name) {
-        Object part = parts.get(name);
+        Object part = getParts().get(name);
         if (part instanceof TempFileInputStream) {
             return (TempFileInputStream) part;
         }
@@ -3,6 +3,7 @@ package com.file_exchange.http;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -13,6 +14,8 @@ public class HttpResponse {
     private String statusText;
     private String contentType;
     private byte[] body;
+    // When set, written to the connection instead of body
+    private StreamingBody streamingBody;
     private Map<String, String> headers = new HashMap<>();
 
   public  static  HttpResponse ok(byte[] body, String type) {
@@ -32,11 +35,52 @@ public class HttpResponse {
         return r;
     }
 
+    public static HttpResponse ok(StreamingBody body, String type, Map<String, String> headers) {
+        HttpResponse r = ok(new byte[0], type, headers);
+        r.streamingBody = body;
+        return r;
+    }
+
+    public long getContentLength() {
+        if (streamingBody != null) {
+            return streamingBody.contentLength();
+        }
+        return body != null ? body.length : 0;
+    }
+
     public HttpResponse withHeader(String name, String value) {
         this.headers.put(name, value);
         return this;
     }
 
+    public static HttpResponse partialContent(StreamingBody body, String type, Map<String, String> headers) {
+        HttpResponse r = ok(body, type, headers);
+        r.statusCode = 206;
+        r.statusText = "Partial Content";
+        return r;
+    }
+
+    /**
+     * 304 for a conditional GET whose client copy is current: validators only, never a body.
+     */
+    public static HttpResponse notModified(Map<String, String> headers) {
+        HttpResponse r = new HttpResponse();
+        r.statusCode = 304;
+        r.statusText = "Not Modified";
+        r.headers.putAll(headers);
+        return r;
+    }
+
+    public static HttpResponse rangeNotSatisfiable(long size) {
+        HttpResponse r = new HttpResponse();
+        r.statusCode = 416;
+        r.statusText = "Range Not Satisfiable";
+        r.contentType = "text/plain";
+        r.body = "Range Not Satisfiable".getBytes();
+        r.headers.put("Content-Range", "bytes */" + size);
+        return r;
+    }
+
     public static HttpResponse notFound() {
         HttpResponse r = new HttpResponse();
         r.statusCode = 404;
@@ -46,6 +90,16 @@ public class HttpResponse {
         return r;
     }
 
+    public static HttpResponse methodNotAllowed(Collection<String> allowedMethods) {
+        HttpResponse r = new HttpResponse();
+        r.statusCode = 405;
+        r.statusText = "Method Not Allowed";
+        r.contentType = "text/plain";
+        r.body = "Method Not Allowed".getBytes();
+        r.headers.put("Allow", String.join(", ", allowedMethods));
+        return r;
+    }
+
     public static HttpResponse serverError() {
         HttpResponse r = new HttpResponse();
         r.statusCode = 500;
@@ -64,6 +118,15 @@ public class HttpResponse {
         return r;
     }
 
+    public static HttpResponse lengthRequired() {
+        HttpResponse r = new HttpResponse();
+        r.statusCode = 411;
+        r.statusText = "Length Required";
+        r.contentType = "text/plain";
+        r.body = "Request bodies must be sent with Content-Length".getBytes();
+        return r;
+    }
+
     public static HttpResponse forbidden() {
         HttpResponse r = new HttpResponse();
         r.statusCode = 403;
@@ -0,0 +1,37 @@
+package com.file_exchange.http;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * A value serialized to JSON while the response is being written. The JsonGenerator writes
+ * into the connection's output stream, so the document never exists as a String or byte[].
+ * The length is not known up front, so the body is sent with chunked transfer encoding.
+ */
+public class JsonBody implements StreamingBody {
+    private final Object value;
+    private final ObjectMapper objectMapper;
+
+    public JsonBody(Object value, ObjectMapper objectMapper) {
+        this.value = value;
+        this.objectMapper = objectMapper;
+    }
+
+    public Object getValue() { return value; }
+
+    @Override
+    public long contentLength() {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(ResponseSink sink) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(sink.stream())) {
+            // The sink's stream is the connection - it must outlive the generator
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            objectMapper.writeValue(generator, value);
+        }
+    }
+}
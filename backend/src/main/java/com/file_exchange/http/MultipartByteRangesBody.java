@@ -0,0 +1,64 @@
+package com.file_exchange.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * multipart/byteranges body for a 206 response with several ranges of one file.
+ * Every part is transferred straight from the file, only the small part headers are built in memory.
+ */
+public class MultipartByteRangesBody implements StreamingBody {
+    private final Path path;
+    private final String boundary;
+    private final List<long[]> ranges;
+    private final List<byte[]> partHeaders = new ArrayList<>();
+    private final byte[] closingDelimiter;
+    private final long contentLength;
+
+    /**
+     * @param ranges inclusive {first, last} byte positions, already validated against fileSize
+     */
+    public MultipartByteRangesBody(Path path, String contentType, long fileSize, List<long[]> ranges, String boundary) {
+        this.path = path;
+        this.boundary = boundary;
+        this.ranges = ranges;
+
+        long length = 0;
+        for (long[] range : ranges) {
+            String header = "\r\n--" + boundary + "\r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Range: bytes " + range[0] + "-" + range[1] + "/" + fileSize + "\r\n\r\n";
+            byte[] bytes = header.getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(bytes);
+            length += bytes.length + (range[1] - range[0] + 1);
+        }
+        this.closingDelimiter = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        this.contentLength = length + closingDelimiter.length;
+    }
+
+    public String getBoundary() { return boundary; }
+
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void writeTo(ResponseSink sink) throws IOException {
+        OutputStream out = sink.stream();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                out.write(partHeaders.get(i));
+                sink.transferFrom(channel, range[0], range[1] - range[0] + 1);
+            }
+        }
+        out.write(closingDelimiter);
+    }
+}
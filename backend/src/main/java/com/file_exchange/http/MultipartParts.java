@@ -0,0 +1,147 @@
+package com.file_exchange.http;
+
+import com.file_exchange.handlers.utilsFiles.InputStreamRequestContext;
+import com.file_exchange.handlers.utilsFiles.TempFileInputStream;
+import com.file_exchange.storage.BlobStore;
+import org.apache.commons.fileupload.*;
+import org.apache.commons.fileupload.util.Streams;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The multipart/form-data body of a request, still unread on the connection when the request is dispatched.
+ * Nothing is read until a handler asks for a part: a handler can check the Authorization header and reject
+ * the request before a single body byte is touched, or pull the file part as a live stream
+ * (see StreamingPart) and write it straight to its final location.
+ * Handlers that take a TempFileInputStream or form fields get every part materialized on first access,
+ * as HttpRequestParser used to do up front.
+ */
+public class MultipartParts {
+    // Maximum allowed file size (100MB)
+    private static final long MAX_FILE_SIZE = 100 * 1024 * 1024;
+
+    private final ConnectionBody body;
+    private final Map<String, String> headers;
+    private final Path stagingDirectory;
+    // Form fields (and materialized files) met while walking the parts
+    private final Map<String, Object> parts = new HashMap<>();
+    private boolean materialized = false;
+    private FileItemIterator iterator;
+
+    /**
+     * @param body             the request body, limited to Content-Length when the request has one
+     * @param stagingDirectory where files are staged if the parts get materialized
+     */
+    public MultipartParts(InputStream body, Map<String, String> headers, Path stagingDirectory) {
+        this.body = new ConnectionBody(body, headers);
+        this.headers = headers;
+        this.stagingDirectory = stagingDirectory;
+    }
+
+    /**
+     * Runs once, right before the first body byte is read - used to send "100 Continue".
+     */
+    public void setBeforeFirstRead(Runnable beforeFirstRead) {
+        body.setBeforeFirstRead(beforeFirstRead);
+    }
+
+    /**
+     * The raw body under the parts.
+     */
+    public ConnectionBody getBody() {
+        return body;
+    }
+
+    /**
+     * Advances to the file part with the given field name. Form fields before it are kept as strings,
+     * other file parts are skipped. Returns null when the body has no such part.
+     */
+    public FileItemStream nextFile(String fieldName) throws IOException {
+        try {
+            FileItemIterator items = iterator();
+            while (items.hasNext()) {
+                FileItemStream item = items.next();
+                if (item.isFormField()) {
+                    parts.put(item.getFieldName(), Streams.asString(item.openStream(), StandardCharsets.UTF_8.name()));
+                } else if (fieldName.equals(item.getFieldName())) {
+                    return item;
+                }
+            }
+            return null;
+        } catch (FileUploadException e) {
+            throw new IOException("Multipart parsing failed", e);
+        }
+    }
+
+    /**
+     * Reads every remaining part: form fields as strings, files streamed into staged temp files.
+     */
+    public Map<String, Object> materialize() throws IOException {
+        if (materialized) {
+            return parts;
+        }
+        materialized = true;
+        try {
+            FileItemIterator items = iterator();
+            while (items.hasNext()) {
+                FileItemStream item = items.next();
+                String fieldName = item.getFieldName();
+
+                if (item.isFormField()) {
+                    // Simple form field — read as text
+                    parts.put(fieldName, Streams.asString(item.openStream(), StandardCharsets.UTF_8.name()));
+                } else {
+                    parts.put(fieldName, stage(item));
+                }
+            }
+        } catch (FileUploadException e) {
+            throw new IOException("Multipart parsing failed", e);
+        }
+        return parts;
+    }
+
+    /**
+     * Reads and throws away whatever the handler left unread, so the next request on the connection
+     * starts at the right byte. Returns false when the connection cannot be reused: the body length is
+     * unknown, or the client is still waiting for "100 Continue" and will not send the body at all.
+     */
+    public boolean skipRemaining() throws IOException {
+        return body.skipRemaining();
+    }
+
+    private TempFileInputStream stage(FileItemStream item) throws IOException {
+        // Create a temp file to store the uploaded content
+        Path tempFile = Files.createTempFile(stagingDirectory, "upload-", ".tmp");
+        long bytesWritten;
+        // Hashed on the way through, so the blob store never has to read the file again
+        MessageDigest digest = BlobStore.newDigest();
+        try (InputStream fileStream = new DigestInputStream(item.openStream(), digest);
+             OutputStream fos = Files.newOutputStream(tempFile)) {
+            // copy file in 1 thread - only 8KB buffer in memory
+            bytesWritten = fileStream.transferTo(fos);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        // Wrap the temp file in a TempFileInputStream for later cleanup
+        return new TempFileInputStream(tempFile, item.getName(), bytesWritten, BlobStore.toHex(digest));
+    }
+
+    private FileItemIterator iterator() throws IOException, FileUploadException {
+        if (iterator == null) {
+            // Creating the iterator already reads the preamble, so it is only done once a part is needed
+            FileUpload upload = new FileUpload();
+            upload.setFileSizeMax(MAX_FILE_SIZE);
+            upload.setSizeMax(MAX_FILE_SIZE);
+            iterator = upload.getItemIterator(new InputStreamRequestContext(body, headers));
+        }
+        return iterator;
+    }
+}
@@ -0,0 +1,24 @@
+package com.file_exchange.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Destination of a {@link StreamingBody}, backed by the client connection.
+ */
+public interface ResponseSink {
+    OutputStream stream();
+
+    /**
+     * Copies a region of a file to the client, using sendfile when the connection is a socket channel.
+     */
+    void transferFrom(FileChannel file, long position, long count) throws IOException;
+
+    /**
+     * Writes the remaining bytes of a buffer to the client. Direct buffers go to the socket channel
+     * without being copied onto the Java heap.
+     */
+    void write(ByteBuffer buffer) throws IOException;
+}
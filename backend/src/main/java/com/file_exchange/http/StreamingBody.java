@@ -0,0 +1,16 @@
+package com.file_exchange.http;
+
+import java.io.IOException;
+
+/**
+ * Response body that is written straight to the connection instead of being held as a byte[].
+ */
+public interface StreamingBody {
+    /**
+     * Number of bytes writeTo will produce, or -1 when it is not known up front
+     * (the server then uses chunked transfer encoding).
+     */
+    long contentLength();
+
+    void writeTo(ResponseSink sink) throws IOException;
+}
@@ -0,0 +1,76 @@
+package com.file_exchange.http;
+
+import com.file_exchange.dto.FileDto;
+import com.file_exchange.handlers.utilsFiles.MimeTypeUtils;
+import com.file_exchange.storage.StorageCodec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A ZIP archive of several files, built while it is written to the connection.
+ * Each file is streamed into its entry and the central directory is written last, so neither the archive
+ * nor any file in it is ever held in memory or staged on disk. The length is not known up front,
+ * so the archive is sent with chunked transfer encoding.
+ */
+public class ZipArchiveBody implements StreamingBody {
+    private final List<FileDto> files;
+
+    public ZipArchiveBody(List<FileDto> files) {
+        this.files = files;
+    }
+
+    @Override
+    public long contentLength() {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(ResponseSink sink) throws IOException {
+        // Not closed: the sink's stream is the connection, finish() completes the archive without closing it
+        ZipOutputStream zip = new ZipOutputStream(sink.stream());
+        Set<String> names = new HashSet<>();
+        for (FileDto file : files) {
+            ZipEntry entry = new ZipEntry(uniqueName(file.getFileName(), names));
+            if (file.getLastModified() != null) {
+                entry.setLastModifiedTime(FileTime.from(file.getLastModified()));
+            }
+            // Already-compressed formats are written as stored deflate blocks: no CPU spent, no second
+            // pass over the file for the CRC that a STORED entry needs before its data
+            zip.setLevel(MimeTypeUtils.isCompressed(file.getFileName())
+                    ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+            zip.putNextEntry(entry);
+            try (InputStream in = StorageCodec.open(file.getFilePath(), file.getCodec())) {
+                in.transferTo(zip);
+            }
+            zip.closeEntry();
+        }
+        zip.finish();
+    }
+
+    /**
+     * Entry names must be unique within an archive: "a.txt", "a (1).txt", "a (2).txt"...
+     */
+    private static String uniqueName(String fileName, Set<String> names) {
+        String name = fileName == null || fileName.isBlank() ? "file" : fileName;
+        if (names.add(name)) {
+            return name;
+        }
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        for (int i = 1; ; i++) {
+            String candidate = base + " (" + i + ")" + extension;
+            if (names.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.file_exchange.processor;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Build-time replacement for scanning controllers by reflection.
+ * Reads every @CustomRestController and its @Custom*Mapping methods and generates
+ * com.file_exchange.handlers.generated.GeneratedRouteTable: the route list of each controller,
+ * its parameter bindings, and a lambda per handler that calls the controller method directly.
+ *
+ * Annotation types are referenced by name, so this class compiles before the rest of the
+ * module (see the compile-route-processor execution in pom.xml).
+ */
+@SupportedAnnotationTypes("com.file_exchange.annotations.CustomRestController")
+public class RouteProcessor extends AbstractProcessor {
+    private static final String ANNOTATIONS = "com.file_exchange.annotations.";
+    private static final String GENERATED_PACKAGE = "com.file_exchange.handlers.generated";
+    private static final String GENERATED_CLASS = "GeneratedRouteTable";
+
+    private static final Map<String, String> METHOD_MAPPINGS = new LinkedHashMap<>();
+    private static final Map<String, String> PARAMETER_SOURCES = new LinkedHashMap<>();
+
+    static {
+        METHOD_MAPPINGS.put(ANNOTATIONS + "CustomGetMapping", "GET");
+        METHOD_MAPPINGS.put(ANNOTATIONS + "CustomPostMapping", "POST");
+        METHOD_MAPPINGS.put(ANNOTATIONS + "CustomPutMapping", "PUT");
+        METHOD_MAPPINGS.put(ANNOTATIONS + "CustomPatchMapping", "PATCH");
+        METHOD_MAPPINGS.put(ANNOTATIONS + "CustomDeleteMapping", "DELETE");
+
+        PARAMETER_SOURCES.put(ANNOTATIONS + "CustomRequestBody", "BODY");
+        PARAMETER_SOURCES.put(ANNOTATIONS + "CustomRequestParam", "QUERY_PARAM");
+        PARAMETER_SOURCES.put(ANNOTATIONS + "CustomPathVariable", "PATH_VARIABLE");
+        PARAMETER_SOURCES.put(ANNOTATIONS + "CustomRequestHeader", "HEADER");
+        PARAMETER_SOURCES.put(ANNOTATIONS + "CustomRequestPart", "PART");
+        PARAMETER_SOURCES.put(ANNOTATIONS + "CustomRequestMethod", "METHOD");
+    }
+
+    private final List<TypeElement> controllers = new ArrayList<>();
+    private boolean written = false;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS) {
+                    controllers.add((TypeElement) element);
+                }
+            }
+        }
+
+        // Written in the first round that sees controllers, so the table itself is compiled normally
+        if (!written && !controllers.isEmpty()) {
+            written = true;
+            writeRouteTable();
+        }
+        return false;
+    }
+
+    private void writeRouteTable() {
+        StringBuilder src = new StringBuilder();
+        src.append("package ").append(GENERATED_PACKAGE).append(";\n\n")
+                .append("import com.file_exchange.handlers.HandlerMethod;\n")
+                .append("import com.file_exchange.handlers.HandlerParameter;\n")
+                .append("import com.file_exchange.handlers.HandlerParameter.Source;\n\n")
+                .append("import java.util.List;\n\n")
+                .append("/**\n * Generated by RouteProcessor - do not edit.\n */\n")
+                .append("public final class ").append(GENERATED_CLASS).append(" {\n\n")
+                .append("    private ").append(GENERATED_CLASS).append("() {\n    }\n\n")
+                .append("    /**\n     * Routes of a controller compiled with RouteProcessor, or null for any other object.\n     */\n")
+                .append("    public static List<HandlerMethod> routesFor(Object controller) {\n");
+
+        for (int i = 0; i < controllers.size(); i++) {
+            String type = controllers.get(i).getQualifiedName().toString();
+            src.append("        if (controller.getClass() == ").append(type).append(".class) {\n")
+                    .append("            return routes").append(i).append("((").append(type).append(") controller);\n")
+                    .append("        }\n");
+        }
+        src.append("        return null;\n    }\n");
+
+        for (int i = 0; i < controllers.size(); i++) {
+            writeControllerRoutes(src, i, controllers.get(i));
+        }
+        src.append("}\n");
+
+        try {
+            Element[] origins = controllers.toArray(new Element[0]);
+            JavaFileObject file = processingEnv.getFiler()
+                    .createSourceFile(GENERATED_PACKAGE + "." + GENERATED_CLASS, origins);
+            try (Writer writer = file.openWriter()) {
+                writer.write(src.toString());
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "RouteProcessor failed to write " + GENERATED_CLASS + ": " + e.getMessage());
+        }
+    }
+
+    private void writeControllerRoutes(StringBuilder src, int index, TypeElement controller) {
+        String type = controller.getQualifiedName().toString();
+        String basePath = "";
+        AnnotationMirror classMapping = find(controller, ANNOTATIONS + "CustomRequestMapping");
+        if (classMapping != null) {
+            basePath = stringValue(classMapping, "value", "");
+            if (!basePath.startsWith("/")) basePath = "/" + basePath;
+        }
+
+        src.append("\n    private static List<HandlerMethod> routes").append(index)
+                .append("(").append(type).append(" c) {\n")
+                .append("        return List.of(");
+
+        boolean first = true;
+        for (Element member : controller.getEnclosedElements()) {
+            if (member.getKind() != ElementKind.METHOD) continue;
+            ExecutableElement method = (ExecutableElement) member;
+
+            String[] mapping = mappingOf(method, basePath);
+            if (mapping == null) continue;
+
+            if (method.getModifiers().contains(Modifier.PRIVATE) || method.getModifiers().contains(Modifier.STATIC)) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Mapped handler methods must be non-private instance methods", method);
+                continue;
+            }
+
+            src.append(first ? "\n" : ",\n");
+            first = false;
+            writeHandler(src, method, mapping[0], mapping[1]);
+        }
+        src.append(");\n    }\n");
+    }
+
+    private void writeHandler(StringBuilder src, ExecutableElement method, String httpMethod, String path) {
+        List<? extends VariableElement> params = method.getParameters();
+        String name = method.getSimpleName().toString();
+
+        src.append("                new HandlerMethod(c, ").append(literal(path)).append(", ")
+                .append(literal(httpMethod)).append(", ").append(literal(name)).append(",\n")
+                .append("                        new HandlerParameter[]{");
+        for (int i = 0; i < params.size(); i++) {
+            VariableElement param = params.get(i);
+            String source = "NONE";
+            String paramName = null;
+            for (Map.Entry<String, String> entry : PARAMETER_SOURCES.entrySet()) {
+                AnnotationMirror annotation = find(param, entry.getKey());
+                if (annotation != null) {
+                    source = entry.getValue();
+                    paramName = "BODY".equals(source) || "METHOD".equals(source) ? null : stringValue(annotation, "value", "");
+                    break;
+                }
+            }
+            src.append(i == 0 ? "\n" : ",\n")
+                    .append("                                new HandlerParameter(Source.").append(source).append(", ")
+                    .append(paramName == null ? "null" : literal(paramName)).append(", ")
+                    .append(classLiteral(param.asType())).append(")");
+        }
+        src.append("},\n");
+
+        StringBuilder call = new StringBuilder("c.").append(name).append("(");
+        for (int i = 0; i < params.size(); i++) {
+            if (i > 0) call.append(", ");
+            call.append("(").append(castType(params.get(i).asType())).append(") args[").append(i).append("]");
+        }
+        call.append(")");
+
+        if (method.getReturnType().getKind() == TypeKind.VOID) {
+            src.append("                        args -> {\n")
+                    .append("                            ").append(call).append(";\n")
+                    .append("                            return null;\n")
+                    .append("                        })");
+        } else {
+            src.append("                        args -> ").append(call).append(")");
+        }
+    }
+
+    /**
+     * Returns {httpMethod, fullPath} for a mapped method, or null if it is not a handler.
+     */
+    private String[] mappingOf(ExecutableElement method, String basePath) {
+        AnnotationMirror requestMapping = find(method, ANNOTATIONS + "CustomRequestMapping");
+        if (requestMapping != null) {
+            String httpMethod = "GET";
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : requestMapping.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("httpMethod")) {
+                    httpMethod = entry.getValue().getValue().toString();
+                }
+            }
+            return new String[]{httpMethod, combinePaths(basePath, stringValue(requestMapping, "value", ""))};
+        }
+        for (Map.Entry<String, String> entry : METHOD_MAPPINGS.entrySet()) {
+            AnnotationMirror mapping = find(method, entry.getKey());
+            if (mapping != null) {
+                return new String[]{entry.getValue(), combinePaths(basePath, stringValue(mapping, "value", ""))};
+            }
+        }
+        return null;
+    }
+
+    // Same rules as ReflectiveRouteScanner.combinePaths
+    private static String combinePaths(String basePath, String methodPath) {
+        String path = basePath;
+        if (!methodPath.isEmpty()) {
+            if (!methodPath.startsWith("/")) {
+                path += "/" + methodPath;
+            } else {
+                path += methodPath;
+            }
+        }
+        return path.isEmpty() ? "/" : path;
+    }
+
+    private static AnnotationMirror find(Element element, String annotationType) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            Element annotation = mirror.getAnnotationType().asElement();
+            if (((TypeElement) annotation).getQualifiedName().contentEquals(annotationType)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private static String stringValue(AnnotationMirror mirror, String name, String defaultValue) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return String.valueOf(entry.getValue().getValue());
+            }
+        }
+        return defaultValue;
+    }
+
+    private String classLiteral(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return type.toString() + ".class";
+        }
+        return processingEnv.getTypeUtils().erasure(type).toString() + ".class";
+    }
+
+    /**
+     * Cast applied to an Object argument; primitives are unboxed through their wrapper.
+     */
+    private String castType(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((javax.lang.model.type.PrimitiveType) type)
+                    .getQualifiedName().toString();
+        }
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private static String literal(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char ch : value.toCharArray()) {
+            switch (ch) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                default -> sb.append(ch);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
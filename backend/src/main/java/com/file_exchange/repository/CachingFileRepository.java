@@ -0,0 +1,74 @@
+package com.file_exchange.repository;
+
+import com.file_exchange.cache.BoundedCache;
+import com.file_exchange.cache.CacheStats;
+import com.file_exchange.db.ConnectionPool;
+import com.file_exchange.db.WriteBatcher;
+import com.file_exchange.entity.File;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * FileRepository with a metadata cache in front of getFileById, so repeated downloads of a popular file
+ * do not touch SQLite. Entries are weighed by their approximate heap size.
+ * Writes invalidate the affected key once their transaction has committed.
+ */
+public class CachingFileRepository extends FileRepository {
+    // Rough per-entry overhead: cache node, key, File object and String headers
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private final BoundedCache<FileKey, File> metadataCache;
+
+    public CachingFileRepository(ConnectionPool pool, WriteBatcher writeBatcher, long maxCacheBytes) {
+        super(pool, writeBatcher);
+        this.metadataCache = new BoundedCache<>(maxCacheBytes, maxCacheBytes / 256, CachingFileRepository::weigh);
+    }
+
+    @Override
+    public File getFileById(Long fileId, Long userId) {
+        File file = metadataCache.get(new FileKey(fileId, userId), key -> super.getFileById(fileId, userId));
+        // Callers get their own copy, the cached entry must not be mutated through them
+        return file != null ? copy(file) : null;
+    }
+
+    @Override
+    public CompletableFuture<Long> saveFileAsync(File file) {
+        return super.saveFileAsync(file).thenApply(id -> {
+            metadataCache.invalidate(new FileKey(id, file.getUserId()));
+            return id;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Integer> deleteFileAsync(Long fileId, Long userId) {
+        FileKey key = new FileKey(fileId, userId);
+        metadataCache.invalidate(key);
+        // Again after the commit: a read between the two may have cached the row that is now gone
+        return super.deleteFileAsync(fileId, userId).whenComplete((deleted, failure) -> metadataCache.invalidate(key));
+    }
+
+    public CacheStats metadataCacheStats() {
+        return metadataCache.stats();
+    }
+
+    private static long weigh(File file) {
+        return ENTRY_OVERHEAD_BYTES
+                + 2L * (length(file.getFileName()) + length(file.getFilePath()) + length(file.getContentHash())
+                + length(file.getCodec()));
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    private static File copy(File file) {
+        File copy = new File(file.getId(), file.getUserId(), file.getFileName(), file.getFilePath(), file.getSize(),
+                file.getContentHash());
+        copy.setCodec(file.getCodec());
+        copy.setCreatedAt(file.getCreatedAt());
+        return copy;
+    }
+
+    private record FileKey(long fileId, long userId) {
+    }
+}
@@ -2,94 +2,261 @@ package com.file_exchange.repository;
 
 import java.sql.*;
 import java.util.ArrayList;
+
+import com.file_exchange.db.ConnectionPool;
+import com.file_exchange.db.WriteBatcher;
+import com.file_exchange.dto.FileSummary;
 import com.file_exchange.entity.File;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class FileRepository {
-    private final Connection conn;
+    private final ConnectionPool pool;
+    // Inserts and deletes are group-committed, reads go straight to the pool's readers
+    private final WriteBatcher writeBatcher;
 
-    public FileRepository() {
-        try {
-            conn = DriverManager.getConnection("jdbc:sqlite:users.db");
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to connect to database", e);
-        }
+    public FileRepository(ConnectionPool pool, WriteBatcher writeBatcher) {
+        this.pool = pool;
+        this.writeBatcher = writeBatcher;
     }
 
     public Long saveFile(File file) {
-        String sql = "INSERT INTO files (user_id, file_name, file_path, size) VALUES (?, ?, ?, ?)";
-        try (PreparedStatement stmt = conn.prepareStatement(sql,Statement.RETURN_GENERATED_KEYS)){
-            stmt.setLong(1, file.getUserId());
-            stmt.setString(2, file.getFileName());
-            stmt.setString(3, file.getFilePath());
-            stmt.setLong(4, file.getSize());
-            stmt.executeUpdate();
-
-            try(ResultSet rs = stmt.getGeneratedKeys()) {
-                if(rs.next()) {
-                    file.setId(rs.getLong(1));
-                }else{
-                    throw new SQLException("Failed to get generated file ID");
+        return await(saveFileAsync(file), "Failed to save file");
+    }
+
+    /**
+     * Queues the insert on the write batcher. The future completes with the generated id once it is committed.
+     * A file with a content hash also takes a reference on its blob, in the same transaction.
+     */
+    public CompletableFuture<Long> saveFileAsync(File file) {
+        String sql = "INSERT INTO files (user_id, file_name, file_path, size, content_hash, codec, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        if (file.getCreatedAt() == null) {
+            file.setCreatedAt(System.currentTimeMillis());
+        }
+        return writeBatcher.submit(conn -> {
+            if (file.getContentHash() != null) {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO blobs (hash, size, ref_count) VALUES (?, ?, 1) " +
+                                "ON CONFLICT(hash) DO UPDATE SET ref_count = ref_count + 1")) {
+                    stmt.setString(1, file.getContentHash());
+                    stmt.setLong(2, file.getSize());
+                    stmt.executeUpdate();
                 }
             }
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to save file", e);
-        }
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setLong(1, file.getUserId());
+                stmt.setString(2, file.getFileName());
+                stmt.setString(3, file.getFilePath());
+                stmt.setLong(4, file.getSize());
+                stmt.setString(5, file.getContentHash());
+                stmt.setString(6, file.getCodec());
+                stmt.setLong(7, file.getCreatedAt());
+                stmt.executeUpdate();
 
-        return file.getId(); // to change,maybe return null ?
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        file.setId(rs.getLong(1));
+                    } else {
+                        throw new SQLException("Failed to get generated file ID");
+                    }
+                }
+            }
+            return file.getId();
+        });
     }
 
     public List<File> getUserFiles(Long userId) {
-        List<File> files = new ArrayList<>();
-        try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM files WHERE user_id = ?")) {
-            stmt.setLong(1, userId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    File file = new File();
-                    file.setId(rs.getLong("id"));
-                    file.setUserId(rs.getLong("user_id"));
-                    file.setFileName(rs.getString("file_name"));
-                    file.setFilePath(rs.getString("file_path"));
-                    file.setSize(rs.getLong("size"));
-                    files.add(file); // To change
+        try {
+            return pool.read(conn -> {
+                List<File> files = new ArrayList<>();
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM files WHERE user_id = ?")) {
+                    stmt.setLong(1, userId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            files.add(mapFile(rs)); // To change
+                        }
+                    }
                 }
-            }
+                return files;
+            });
         } catch (SQLException e) {
             throw new RuntimeException("Failed to get user files", e);
         }
-        return files;
     }
 
+    /**
+     * One page of a user's files in (sort column, id) order, starting after the given key.
+     * Only id, file_name and size are read, so the query is answered from the covering index alone
+     * and costs O(limit) however many files the user has.
+     *
+     * @param afterValue sort column value of the last row of the previous page, null for the first page
+     * @param afterId    id of the last row of the previous page, null for the first page
+     */
+    public List<FileSummary> getUserFilesPage(Long userId, FileSort sort, boolean descending,
+                                              Object afterValue, Long afterId, int limit) {
+        String direction = descending ? "DESC" : "ASC";
+        StringBuilder sql = new StringBuilder("SELECT id, file_name, size FROM files WHERE user_id = ?");
+        if (afterId != null) {
+            String comparison = descending ? "<" : ">";
+            if (sort == FileSort.ID) {
+                sql.append(" AND id ").append(comparison).append(" ?");
+            } else {
+                sql.append(" AND (").append(sort.getColumn()).append(", id) ").append(comparison).append(" (?, ?)");
+            }
+        }
+        if (sort != FileSort.ID) {
+            sql.append(" ORDER BY ").append(sort.getColumn()).append(' ').append(direction).append(", id ").append(direction);
+        } else {
+            sql.append(" ORDER BY id ").append(direction);
+        }
+        sql.append(" LIMIT ?");
+
+        try {
+            return pool.read(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                    int index = 1;
+                    stmt.setLong(index++, userId);
+                    if (afterId != null) {
+                        if (sort != FileSort.ID) {
+                            stmt.setObject(index++, afterValue);
+                        }
+                        stmt.setLong(index++, afterId);
+                    }
+                    stmt.setInt(index, limit);
+
+                    List<FileSummary> page = new ArrayList<>(limit);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            page.add(new FileSummary(rs.getLong(1), rs.getString(2), rs.getLong(3)));
+                        }
+                    }
+                    return page;
+                }
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get user files page", e);
+        }
+    }
 
     public File getFileById(Long fileId, Long userId) {
-        try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM files WHERE id = ? AND user_id = ?")) {
-            stmt.setLong(1, fileId);
-            stmt.setLong(2, userId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    File file = new File();
-                    file.setId(rs.getLong("id"));
-                    file.setUserId(rs.getLong("user_id"));
-                    file.setFileName(rs.getString("file_name"));
-                    file.setFilePath(rs.getString("file_path"));
-                    file.setSize(rs.getLong("size"));
-                    return file;
+        try {
+            return pool.read(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM files WHERE id = ? AND user_id = ?")) {
+                    stmt.setLong(1, fileId);
+                    stmt.setLong(2, userId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        return rs.next() ? mapFile(rs) : null;
+                    }
                 }
-                return null;
-            }
+            });
         } catch (SQLException e) {
             throw new RuntimeException("Failed to get file", e);
         }
     }
 
+    /**
+     * The user's files among the given ids, in one query. Ids of missing files or files of other users
+     * are simply absent from the result.
+     */
+    public List<File> getUserFilesByIds(Long userId, Collection<Long> fileIds) {
+        if (fileIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(fileIds.size(), "?"));
+        String sql = "SELECT * FROM files WHERE user_id = ? AND id IN (" + placeholders + ")";
+        try {
+            return pool.read(conn -> {
+                List<File> files = new ArrayList<>(fileIds.size());
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    int index = 1;
+                    stmt.setLong(index++, userId);
+                    for (Long fileId : fileIds) {
+                        stmt.setLong(index++, fileId);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            files.add(mapFile(rs));
+                        }
+                    }
+                }
+                return files;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get user files", e);
+        }
+    }
+
     public void deleteFile(Long fileId, Long userId) {
-        try (PreparedStatement stmt = conn.prepareStatement(
-                "DELETE FROM files WHERE id = ? AND user_id = ?")) {
-            stmt.setLong(1, fileId);
-            stmt.setLong(2, userId);
-            stmt.executeUpdate();
+        await(deleteFileAsync(fileId, userId), "Failed to delete file");
+    }
+
+    /**
+     * Queues the delete on the write batcher. The future completes with the number of deleted rows once committed.
+     * The file's blob reference is released in the same transaction, and the blob row goes with its last reference.
+     */
+    public CompletableFuture<Integer> deleteFileAsync(Long fileId, Long userId) {
+        String blobOfFile = "(SELECT content_hash FROM files WHERE id = ? AND user_id = ?)";
+        return writeBatcher.submit(conn -> {
+            try (PreparedStatement release = conn.prepareStatement(
+                    "UPDATE blobs SET ref_count = ref_count - 1 WHERE hash = " + blobOfFile);
+                 PreparedStatement drop = conn.prepareStatement(
+                         "DELETE FROM blobs WHERE ref_count <= 0 AND hash = " + blobOfFile)) {
+                for (PreparedStatement stmt : new PreparedStatement[]{release, drop}) {
+                    stmt.setLong(1, fileId);
+                    stmt.setLong(2, userId);
+                    stmt.executeUpdate();
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "DELETE FROM files WHERE id = ? AND user_id = ?")) {
+                stmt.setLong(1, fileId);
+                stmt.setLong(2, userId);
+                return stmt.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Number of files rows that reference the blob, 0 once it is unreferenced.
+     */
+    public long getBlobReferences(String hash) {
+        try {
+            return pool.read(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT ref_count FROM blobs WHERE hash = ?")) {
+                    stmt.setString(1, hash);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        return rs.next() ? rs.getLong(1) : 0L;
+                    }
+                }
+            });
         } catch (SQLException e) {
-            throw new RuntimeException("Failed to delete file", e);
+            throw new RuntimeException("Failed to get blob references", e);
         }
     }
+
+    private static <T> T await(CompletableFuture<T> future, String message) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new RuntimeException(message, e.getCause());
+        }
+    }
+
+    private File mapFile(ResultSet rs) throws SQLException {
+        File file = new File();
+        file.setId(rs.getLong("id"));
+        file.setUserId(rs.getLong("user_id"));
+        file.setFileName(rs.getString("file_name"));
+        file.setFilePath(rs.getString("file_path"));
+        file.setSize(rs.getLong("size"));
+        file.setContentHash(rs.getString("content_hash"));
+        file.setCodec(rs.getString("codec"));
+        long createdAt = rs.getLong("created_at");
+        file.setCreatedAt(rs.wasNull() ? null : createdAt);
+        return file;
+    }
 }
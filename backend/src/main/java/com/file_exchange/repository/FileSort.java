@@ -0,0 +1,33 @@
+package com.file_exchange.repository;
+
+/**
+ * Sort keys of the paginated file listing. Each one is backed by a covering index on (user_id, column, id),
+ * see DatabaseInitializer, and id breaks ties so every key is unique for keyset pagination.
+ */
+public enum FileSort {
+    ID("id"),
+    NAME("file_name"),
+    SIZE("size");
+
+    private final String column;
+
+    FileSort(String column) {
+        this.column = column;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public static FileSort fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return ID;
+        }
+        for (FileSort sort : values()) {
+            if (sort.name().equalsIgnoreCase(value.trim())) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported sort: " + value);
+    }
+}
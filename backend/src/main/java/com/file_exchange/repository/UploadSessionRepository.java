@@ -0,0 +1,204 @@
+package com.file_exchange.repository;
+
+import com.file_exchange.db.ConnectionPool;
+import com.file_exchange.entity.UploadSession;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+public class UploadSessionRepository {
+    private final ConnectionPool pool;
+
+    public UploadSessionRepository(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    public void createSession(UploadSession session) {
+        try {
+            pool.write(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO upload_sessions (id, user_id, file_name, length, upload_offset, expires_at, chunk_size) " +
+                                "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                    stmt.setString(1, session.getId());
+                    stmt.setLong(2, session.getUserId());
+                    stmt.setString(3, session.getFileName());
+                    if (session.getLength() != null) {
+                        stmt.setLong(4, session.getLength());
+                    } else {
+                        stmt.setNull(4, Types.INTEGER);
+                    }
+                    stmt.setLong(5, session.getOffset());
+                    stmt.setLong(6, session.getExpiresAt());
+                    if (session.getChunkSize() != null) {
+                        stmt.setLong(7, session.getChunkSize());
+                    } else {
+                        stmt.setNull(7, Types.INTEGER);
+                    }
+                    return stmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to create upload session", e);
+        }
+    }
+
+    public UploadSession getSession(String id, Long userId) {
+        try {
+            return pool.read(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT * FROM upload_sessions WHERE id = ? AND user_id = ?")) {
+                    stmt.setString(1, id);
+                    stmt.setLong(2, userId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        return rs.next() ? mapSession(rs) : null;
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get upload session", e);
+        }
+    }
+
+    /**
+     * Moves the offset forward only if it is still expectedOffset, and extends the expiry.
+     * Returns false when another request changed the session first.
+     */
+    public boolean updateOffset(String id, long expectedOffset, long newOffset, long expiresAt) {
+        try {
+            return pool.write(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE upload_sessions SET upload_offset = ?, expires_at = ? WHERE id = ? AND upload_offset = ?")) {
+                    stmt.setLong(1, newOffset);
+                    stmt.setLong(2, expiresAt);
+                    stmt.setString(3, id);
+                    stmt.setLong(4, expectedOffset);
+                    return stmt.executeUpdate() == 1;
+                }
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to update upload session", e);
+        }
+    }
+
+    /**
+     * Records a received chunk of a parallel upload (replacing an earlier copy of it) and extends the expiry.
+     * Returns false, recording nothing, when the session is gone; the writer connection is exclusive, so a
+     * session deleted concurrently is either seen here or deleted together with this chunk.
+     */
+    public boolean saveChunk(String uploadId, long chunkIndex, String sha256, long expiresAt) {
+        try {
+            return pool.write(conn -> {
+                try (PreparedStatement session = conn.prepareStatement(
+                        "UPDATE upload_sessions SET expires_at = ? WHERE id = ?");
+                     PreparedStatement chunk = conn.prepareStatement(
+                             "INSERT OR REPLACE INTO upload_chunks (upload_id, chunk_index, sha256) VALUES (?, ?, ?)")) {
+                    session.setLong(1, expiresAt);
+                    session.setString(2, uploadId);
+                    if (session.executeUpdate() == 0) {
+                        return false;
+                    }
+                    chunk.setString(1, uploadId);
+                    chunk.setLong(2, chunkIndex);
+                    chunk.setString(3, sha256);
+                    chunk.executeUpdate();
+                    return true;
+                }
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save upload chunk", e);
+        }
+    }
+
+    public void deleteChunk(String uploadId, long chunkIndex) {
+        try {
+            pool.write(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "DELETE FROM upload_chunks WHERE upload_id = ? AND chunk_index = ?")) {
+                    stmt.setString(1, uploadId);
+                    stmt.setLong(2, chunkIndex);
+                    return stmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to delete upload chunk", e);
+        }
+    }
+
+    /**
+     * Indexes of the chunks received so far, in ascending order.
+     */
+    public List<Long> getChunkIndexes(String uploadId) {
+        try {
+            return pool.read(conn -> {
+                List<Long> indexes = new ArrayList<>();
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT chunk_index FROM upload_chunks WHERE upload_id = ? ORDER BY chunk_index")) {
+                    stmt.setString(1, uploadId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            indexes.add(rs.getLong(1));
+                        }
+                    }
+                }
+                return indexes;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get upload chunks", e);
+        }
+    }
+
+    public void deleteSession(String id) {
+        try {
+            pool.write(conn -> {
+                try (PreparedStatement chunks = conn.prepareStatement("DELETE FROM upload_chunks WHERE upload_id = ?");
+                     PreparedStatement stmt = conn.prepareStatement("DELETE FROM upload_sessions WHERE id = ?")) {
+                    chunks.setString(1, id);
+                    chunks.executeUpdate();
+                    stmt.setString(1, id);
+                    return stmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to delete upload session", e);
+        }
+    }
+
+    public List<UploadSession> getExpiredSessions(long now) {
+        try {
+            return pool.read(conn -> {
+                List<UploadSession> sessions = new ArrayList<>();
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT * FROM upload_sessions WHERE expires_at <= ?")) {
+                    stmt.setLong(1, now);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            sessions.add(mapSession(rs));
+                        }
+                    }
+                }
+                return sessions;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get expired upload sessions", e);
+        }
+    }
+
+    private UploadSession mapSession(ResultSet rs) throws SQLException {
+        long length = rs.getLong("length");
+        boolean lengthUnknown = rs.wasNull();
+        long chunkSize = rs.getLong("chunk_size");
+        boolean sequential = rs.wasNull();
+        return new UploadSession(
+                rs.getString("id"),
+                rs.getLong("user_id"),
+                rs.getString("file_name"),
+                lengthUnknown ? null : length,
+                rs.getLong("upload_offset"),
+                rs.getLong("expires_at"),
+                sequential ? null : chunkSize);
+    }
+}
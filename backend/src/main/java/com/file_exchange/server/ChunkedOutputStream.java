@@ -0,0 +1,96 @@
+package com.file_exchange.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Frames a response body of unknown length with chunked transfer encoding.
+ * Bytes are collected into chunks of up to CHUNK_SIZE, and every chunk (size line, data and CRLF)
+ * goes to the connection in a single write.
+ */
+final class ChunkedOutputStream extends OutputStream {
+    private static final int CHUNK_SIZE = 8192;
+    // Room in front of the data for the hex size line, e.g. "2000\r\n"
+    private static final int HEADER_ROOM = 10;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+    private final byte[] buf = new byte[HEADER_ROOM + CHUNK_SIZE + CRLF.length];
+    private int count = 0;
+    private boolean finished = false;
+
+    ChunkedOutputStream(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == CHUNK_SIZE) {
+            writeChunk();
+        }
+        buf[HEADER_ROOM + count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len >= CHUNK_SIZE && count == 0) {
+            // Already chunk-sized, no need to copy it
+            out.write(sizeLine(len));
+            out.write(b, off, len);
+            out.write(CRLF);
+            return;
+        }
+        while (len > 0) {
+            if (count == CHUNK_SIZE) {
+                writeChunk();
+            }
+            int n = Math.min(len, CHUNK_SIZE - count);
+            System.arraycopy(b, off, buf, HEADER_ROOM + count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Sends what is buffered as a chunk. An empty buffer is not sent, since a zero-size chunk ends the body.
+     */
+    @Override
+    public void flush() throws IOException {
+        writeChunk();
+        out.flush();
+    }
+
+    /**
+     * Sends the remaining bytes and the terminating zero-size chunk. The connection stays open.
+     */
+    void finish() throws IOException {
+        if (finished) return;
+        finished = true;
+        writeChunk();
+        out.write(LAST_CHUNK);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+    private void writeChunk() throws IOException {
+        if (count == 0) return;
+        byte[] size = sizeLine(count);
+        int start = HEADER_ROOM - size.length;
+        System.arraycopy(size, 0, buf, start, size.length);
+        buf[HEADER_ROOM + count] = '\r';
+        buf[HEADER_ROOM + count + 1] = '\n';
+        out.write(buf, start, size.length + count + CRLF.length);
+        count = 0;
+    }
+
+    private static byte[] sizeLine(int size) {
+        return (Integer.toHexString(size) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,61 @@
+package com.file_exchange.server;
+
+import com.file_exchange.http.ResponseSink;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * ResponseSink over a client connection. File regions go through FileChannel.transferTo,
+ * which becomes sendfile when the socket has a channel.
+ */
+final class ConnectionResponseSink implements ResponseSink {
+    private final OutputStream out;
+    private final WritableByteChannel channel;
+
+    ConnectionResponseSink(OutputStream out, WritableByteChannel channel) {
+        this.out = out;
+        this.channel = channel;
+    }
+
+    @Override
+    public OutputStream stream() {
+        return out;
+    }
+
+    @Override
+    public void transferFrom(FileChannel file, long position, long count) throws IOException {
+        // Anything already buffered on the stream has to reach the socket first
+        out.flush();
+        WritableByteChannel target = channel != null ? channel : Channels.newChannel(out);
+
+        long end = position + count;
+        while (position < end) {
+            long sent = file.transferTo(position, end - position, target);
+            if (sent <= 0 && position >= file.size()) {
+                throw new EOFException("File ended before " + count + " bytes were sent");
+            }
+            position += sent;
+        }
+        if (channel == null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void write(ByteBuffer buffer) throws IOException {
+        out.flush();
+        WritableByteChannel target = channel != null ? channel : Channels.newChannel(out);
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+        if (channel == null) {
+            out.flush();
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.file_exchange.server;
 
-import com.file_exchange.annotations.*;
+import com.file_exchange.annotations.CustomRestController;
 import com.file_exchange.executor.CustomExecutorService;
 import com.file_exchange.handlers.HandlerMethod;
+import com.file_exchange.handlers.ReflectiveRouteScanner;
+import com.file_exchange.handlers.generated.GeneratedRouteTable;
+import com.file_exchange.handlers.dispatcher.ConnectionInput;
 import com.file_exchange.handlers.dispatcher.HttpRequestParser;
 import com.file_exchange.handlers.dispatcher.RequestDispatcher;
 import com.file_exchange.http.HttpRequest;
@@ -11,16 +14,29 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.SneakyThrows;
 
 import java.io.*;
-import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class CustomWebServer {
+    // Keep-alive connections idle for longer than this are closed
+    private static final int IDLE_TIMEOUT_MS = 30000;
+    private static final byte[] CONTINUE_RESPONSE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
     private final int port;
     private final CustomExecutorService executor;
+    private final ServerMode mode;
     private ServerSocket serverSocket;
+    private ServerSocketChannel serverChannel;
+    private NioEventLoop[] eventLoops;
     private volatile boolean running = false;
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final HttpRequestParser requestParser;
@@ -29,21 +45,65 @@ public class CustomWebServer {
     private final Map<String, HandlerMethod> routeHandlers = new ConcurrentHashMap<>();
 
     public CustomWebServer(int port, int threadPoolSize, boolean useVirtualThreads) {
+        this(port, threadPoolSize, useVirtualThreads, ServerMode.BLOCKING);
+    }
+
+    public CustomWebServer(int port, int threadPoolSize, boolean useVirtualThreads, ServerMode mode) {
+        this(port, threadPoolSize, useVirtualThreads, mode, HttpRequestParser.STAGING_DIRECTORY);
+    }
+
+    /**
+     * @param stagingDir where multipart uploads are spooled; it should be FileService's staging directory,
+     *                   so storing an upload is a rename on the same filesystem
+     */
+    public CustomWebServer(int port, int threadPoolSize, boolean useVirtualThreads, ServerMode mode, Path stagingDir) {
         this.port = port == 0 ? Integer.parseInt(System.getenv("PORT") != null ? System.getenv("PORT") : "8080") : port;
         this.executor = useVirtualThreads
                 ? CustomExecutorService.newVirtualThreadPool(threadPoolSize)
                 : CustomExecutorService.newPlatformThreadPool(threadPoolSize);
-        this.requestParser = new HttpRequestParser();
+        this.requestParser = new HttpRequestParser(stagingDir);
         this.requestDispatcher = new RequestDispatcher(routeHandlers, objectMapper);
+        this.mode = mode;
         this.running = false;
     }
 
     public void start() throws IOException {
-        serverSocket = new ServerSocket(port);
+        if (mode == ServerMode.NIO) {
+            startEventLoops();
+            return;
+        }
+        // Opened through a channel so accepted sockets expose getChannel() for zero-copy file transfers
+        serverSocket = ServerSocketChannel.open().bind(new InetSocketAddress(port)).socket();
         running = true;
         executor.execute(this::serverLoop);
     }
 
+    /**
+     * NIO mode: a few selector threads own accept and keep-alive idling,
+     * executor workers only see connections that have a complete request head buffered.
+     */
+    private void startEventLoops() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        running = true;
+
+        int loopCount = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        eventLoops = new NioEventLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            eventLoops[i] = new NioEventLoop(IDLE_TIMEOUT_MS,
+                    connection -> executor.execute(() -> handleNioConnection(connection)));
+        }
+        eventLoops[0].acceptFrom(serverChannel, eventLoops);
+
+        // One builder for all loops, so its counter gives each thread its own name
+        Thread.Builder loopThreads = Thread.ofPlatform()
+                .name("nio-event-loop-", 0)
+                .daemon(true);
+        for (NioEventLoop loop : eventLoops) {
+            loopThreads.start(loop);
+        }
+    }
+
     private void serverLoop() {
         while (running && !serverSocket.isClosed()) {
             try {
@@ -65,24 +125,11 @@ public class CustomWebServer {
         try (InputStream in = clientSocket.getInputStream();
              OutputStream out = clientSocket.getOutputStream()) {
 
-            clientSocket.setSoTimeout(30000);
+            clientSocket.setSoTimeout(IDLE_TIMEOUT_MS);
+            ConnectionInput input = new ConnectionInput(in);
 
             while (keepAlive && running) {
-                HttpRequest request = requestParser.parse(in);
-                if (request == null) break;
-
-                HttpResponse response = requestDispatcher.handleRequest(request);
-                requestCount++;
-                if (response == null) break;
-
-                String connectionHeader = request.getHeaders().getOrDefault("connection", "")
-                        .toLowerCase();
-
-                if ("close".equals(connectionHeader) || response.getStatusCode() >= 400) {
-                    keepAlive = false;
-                }
-
-                sendResponse(out, response, keepAlive);
+                keepAlive = serveRequest(input, out, clientSocket.getChannel());
             }
 
         } catch (Exception e) {
@@ -100,12 +147,116 @@ public class CustomWebServer {
         }
     }
 
+    /**
+     * Runs one request on a worker in NIO mode, then parks the connection back on its event loop.
+     * The request head is already buffered, so only the body (if any) is read from the blocking channel.
+     * Leftover pipelined bytes stay in the connection's ConnectionInput for the next request.
+     */
+    private void handleNioConnection(NioConnection connection) {
+        SocketChannel channel = connection.channel();
+        boolean keepAlive = false;
+        try {
+            Socket socket = channel.socket();
+            socket.setSoTimeout(IDLE_TIMEOUT_MS);
+            ConnectionInput input = connection.input();
+            input.setSource(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+
+            // Pipelined requests that are already buffered are served without a trip through the selector
+            do {
+                keepAlive = serveRequest(input, out, channel) && running;
+            } while (keepAlive && input.hasBufferedHead());
+
+            if (keepAlive) {
+                connection.touch();
+                channel.configureBlocking(false);
+                connection.eventLoop().register(connection);
+            }
+        } catch (Exception e) {
+            if (running) {
+                System.err.println("CustomWebServer - Error while handling client: " + e.getMessage());
+                e.printStackTrace(System.err);
+            }
+            keepAlive = false;
+        } finally {
+            if (!keepAlive) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Parses, dispatches and answers a single request.
+     * Returns whether the connection should be kept alive for the next one.
+     */
+    private boolean serveRequest(ConnectionInput in, OutputStream out, WritableByteChannel channel) throws IOException {
+        HttpRequest request = requestParser.parse(in);
+        if (request == null) return false;
+
+        if (request.getHeaders().containsKey("transfer-encoding")) {
+            // The parser left the chunked body unread; the connection cannot be reused after it
+            sendResponse(out, channel, request, HttpResponse.lengthRequired(), false);
+            return false;
+        }
+
+        if (request.getUnreadBody() != null
+                && "100-continue".equalsIgnoreCase(request.getHeaders().getOrDefault("expect", ""))) {
+            // The client holds the body back until a handler actually starts reading it
+            request.getUnreadBody().setBeforeFirstRead(() -> sendContinue(out));
+        }
+
+        HttpResponse response = requestDispatcher.handleRequest(request);
+        requestCount++;
+        if (response == null) return false;
+
+        String connectionHeader = request.getHeaders().getOrDefault("connection", "")
+                .toLowerCase();
+
+        // An unfinished streamed body is skipped so the next request starts in the right place;
+        // rejected requests just close the connection instead of reading an upload nobody wants
+        boolean keepAlive = !"close".equals(connectionHeader) && response.getStatusCode() < 400
+                && request.finishBody();
+
+        sendResponse(out, channel, request, response, keepAlive);
+        return keepAlive;
+    }
+
+    @SneakyThrows
+    private void sendContinue(OutputStream out) {
+        out.write(CONTINUE_RESPONSE);
+        out.flush();
+    }
+
     @SneakyThrows
-    private void sendResponse(OutputStream out, HttpResponse response, boolean keepAlive) {
+    private void sendResponse(OutputStream out, WritableByteChannel channel, HttpRequest request, HttpResponse response,
+                              boolean keepAlive) {
+        String acceptEncoding = request.getHeaders().get("accept-encoding");
+        ResponseCompression.useStoredEncoding(response, acceptEncoding);
+        boolean compressible = ResponseCompression.isCompressible(response);
+        String encoding = compressible ? ResponseCompression.negotiate(acceptEncoding) : null;
+        // A 304 describes the client's cached copy, it has neither a body nor a type of its own
+        boolean bodyless = response.getStatusCode() == 304;
+
         PrintWriter writer = new PrintWriter(out);
         writer.printf("HTTP/1.1 %d %s\r\n", response.getStatusCode(), response.getStatusText());
-        writer.printf("Content-Type: %s\r\n", response.getContentType());
-        writer.printf("Content-Length: %d\r\n", response.getBody().length);
+        if (!bodyless) {
+            writer.printf("Content-Type: %s\r\n", response.getContentType());
+        }
+        long contentLength = response.getContentLength();
+        boolean chunked = contentLength < 0 || encoding != null;
+        if (encoding != null) {
+            writer.printf("Content-Encoding: %s\r\n", encoding);
+            ResponseCompression.weakenETag(response);
+        }
+        if (compressible && !response.getHeaders().containsKey("Vary")) {
+            // Caches in front of the server must not hand a compressed copy to a client that did not ask for it
+            writer.print("Vary: Accept-Encoding\r\n");
+        }
+        if (chunked) {
+            writer.print("Transfer-Encoding: chunked\r\n");
+        } else if (!bodyless) {
+            writer.printf("Content-Length: %d\r\n", contentLength);
+        }
         writer.printf("Connection: %s\r\n", keepAlive ? "keep-alive" : "close");
 
         if (response.getHeaders() != null) {
@@ -115,7 +266,33 @@ public class CustomWebServer {
         }
         writer.print("\r\n");
         writer.flush();
-        if (response.getBody() != null && response.getBody().length > 0) {
+        if ("HEAD".equals(request.getMethod())) {
+            // Same headers as the GET, including its Content-Length; the body is never produced
+            return;
+        }
+        if (encoding != null) {
+            // Compressed while it is written: file bytes pass through the heap, but never all of them at once
+            ChunkedOutputStream chunks = new ChunkedOutputStream(out);
+            try (OutputStream encoded = ResponseCompression.encode(encoding, chunks)) {
+                if (response.getStreamingBody() != null) {
+                    response.getStreamingBody().writeTo(new ConnectionResponseSink(encoded, null));
+                } else if (response.getBody() != null) {
+                    encoded.write(response.getBody());
+                }
+            }
+            chunks.finish();
+        } else if (response.getStreamingBody() != null) {
+            if (chunked) {
+                // Chunk framing has to wrap every byte, so there is no direct channel to bypass it
+                ChunkedOutputStream chunks = new ChunkedOutputStream(out);
+                response.getStreamingBody().writeTo(new ConnectionResponseSink(chunks, null));
+                chunks.finish();
+            } else {
+                // Files go from the page cache to the socket, heap use does not depend on their size
+                response.getStreamingBody().writeTo(new ConnectionResponseSink(out, channel));
+                out.flush();
+            }
+        } else if (response.getBody() != null && response.getBody().length > 0) {
             out.write(response.getBody());
             out.flush();
         }
@@ -128,6 +305,14 @@ public class CustomWebServer {
             if (serverSocket != null && !serverSocket.isClosed()) {
                 serverSocket.close();
             }
+            if (eventLoops != null) {
+                for (NioEventLoop loop : eventLoops) {
+                    loop.stop();
+                }
+            }
+            if (serverChannel != null && serverChannel.isOpen()) {
+                serverChannel.close();
+            }
         } catch (IOException e) {
             System.err.println("Error closing server socket: " + e.getMessage());
             e.printStackTrace();
@@ -143,58 +328,14 @@ public class CustomWebServer {
             return;
         }
 
-        String basePath = "";
-        if (clas.isAnnotationPresent(CustomRequestMapping.class)) {
-            basePath = clas.getAnnotation(CustomRequestMapping.class).value();
-            if (!basePath.startsWith("/")) basePath = "/" + basePath;
-        }
-
-        for (Method method : clas.getDeclaredMethods()) {
-            String path = basePath;
-            String httpMethod = null;
-
-            if (method.isAnnotationPresent(CustomRequestMapping.class)) {
-                CustomRequestMapping mapping = method.getAnnotation(CustomRequestMapping.class);
-                path = combinePaths(basePath, mapping.value());
-                httpMethod = mapping.httpMethod().name();
-            } else if (method.isAnnotationPresent(CustomGetMapping.class)) {
-                CustomGetMapping mapping = method.getAnnotation(CustomGetMapping.class);
-                path = combinePaths(basePath, mapping.value());
-                httpMethod = "GET";
-            } else if (method.isAnnotationPresent(CustomPostMapping.class)) {
-                CustomPostMapping mapping = method.getAnnotation(CustomPostMapping.class);
-                path = combinePaths(basePath, mapping.value());
-                httpMethod = "POST";
-            } else if (method.isAnnotationPresent(CustomPutMapping.class)) {
-                CustomPutMapping mapping = method.getAnnotation(CustomPutMapping.class);
-                path = combinePaths(basePath, mapping.value());
-                httpMethod = "PUT";
-            } else if (method.isAnnotationPresent(CustomPatchMapping.class)) {
-                CustomPatchMapping mapping = method.getAnnotation(CustomPatchMapping.class);
-                path = combinePaths(basePath, mapping.value());
-                httpMethod = "PATCH";
-            } else if (method.isAnnotationPresent(CustomDeleteMapping.class)) {
-                CustomDeleteMapping mapping = method.getAnnotation(CustomDeleteMapping.class);
-                path = combinePaths(basePath, mapping.value());
-                httpMethod = "DELETE";
-            }
-
-            if (httpMethod != null) {
-                String key = httpMethod + ":" + path;
-                routeHandlers.put(key, new HandlerMethod(controller, method, path, httpMethod));
-            }
+        // Route table generated at build time by RouteProcessor; reflection only for controllers it did not see
+        List<HandlerMethod> handlers = GeneratedRouteTable.routesFor(controller);
+        if (handlers == null) {
+            handlers = ReflectiveRouteScanner.scan(controller);
         }
-    }
 
-    private String combinePaths(String basePath, String methodPath) {
-        String path = basePath;
-        if (!methodPath.isEmpty()) {
-            if (!methodPath.startsWith("/")) {
-                path += "/" + methodPath;
-            } else {
-                path += methodPath;
-            }
+        for (HandlerMethod handler : handlers) {
+            requestDispatcher.registerHandler(handler);
         }
-        return path.isEmpty() ? "/" : path;
     }
-}
\ No newline at end of file
+}
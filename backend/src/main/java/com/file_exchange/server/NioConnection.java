@@ -0,0 +1,71 @@
+package com.file_exchange.server;
+
+import com.file_exchange.handlers.dispatcher.ConnectionInput;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.SocketChannel;
+
+/**
+ * State of one client connection served by a {@link NioEventLoop}.
+ * The connection's input buffer collects the request head while it idles on the selector.
+ */
+final class NioConnection {
+    private final SocketChannel channel;
+    private final NioEventLoop eventLoop;
+    // Survives selector <-> worker handoffs, so pipelined bytes are never lost
+    private final ConnectionInput input = new ConnectionInput(InputStream.nullInputStream());
+    private long lastActive = System.currentTimeMillis();
+
+    NioConnection(SocketChannel channel, NioEventLoop eventLoop) {
+        this.channel = channel;
+        this.eventLoop = eventLoop;
+    }
+
+    SocketChannel channel() {
+        return channel;
+    }
+
+    NioEventLoop eventLoop() {
+        return eventLoop;
+    }
+
+    ConnectionInput input() {
+        return input;
+    }
+
+    long lastActive() {
+        return lastActive;
+    }
+
+    void touch() {
+        lastActive = System.currentTimeMillis();
+    }
+
+    /**
+     * Reads whatever the socket has available without blocking.
+     * Returns the number of bytes read, or -1 when the peer closed the connection.
+     */
+    int readAvailable() throws IOException {
+        int read = input.fillFrom(channel);
+        if (read > 0) {
+            touch();
+        }
+        return read;
+    }
+
+    /**
+     * Checks whether the buffered bytes contain a complete request head (terminated by an empty line).
+     */
+    boolean hasCompleteHead() {
+        return input.hasBufferedHead();
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Explicitly silenced - the peer is already gone
+        }
+    }
+}
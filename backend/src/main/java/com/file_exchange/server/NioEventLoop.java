@@ -0,0 +1,189 @@
+package com.file_exchange.server;
+
+import java.io.IOException;
+import java.nio.channels.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Selector loop used by {@link ServerMode#NIO}.
+ * Accepts connections (when it owns the server channel), reads request heads without blocking
+ * and keeps idle keep-alive connections parked on the selector instead of on a worker thread.
+ * Once a full request head is buffered the connection is switched to blocking mode and handed to the executor.
+ */
+final class NioEventLoop implements Runnable {
+    private static final long SELECT_TIMEOUT_MS = 1000;
+
+    private final Selector selector;
+    private final long idleTimeoutMs;
+    private final Consumer<NioConnection> requestHandler;
+    private final Queue<NioConnection> pendingRegistrations = new ConcurrentLinkedQueue<>();
+    private final List<NioConnection> pendingHandoffs = new ArrayList<>();
+    private NioEventLoop[] group;
+    private int nextLoop = 0;
+    private volatile boolean running = true;
+    private long lastIdleSweep = System.currentTimeMillis();
+
+    NioEventLoop(long idleTimeoutMs, Consumer<NioConnection> requestHandler) throws IOException {
+        this.selector = Selector.open();
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.requestHandler = requestHandler;
+    }
+
+    /**
+     * Makes this loop the acceptor: new connections are spread round-robin over the given group.
+     */
+    void acceptFrom(ServerSocketChannel serverChannel, NioEventLoop[] group) throws IOException {
+        this.group = group;
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Queues a non-blocking connection for (re)registration. Safe to call from any thread.
+     */
+    void register(NioConnection connection) {
+        pendingRegistrations.add(connection);
+        selector.wakeup();
+    }
+
+    void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(SELECT_TIMEOUT_MS);
+                registerPending();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+
+                    if (key.isAcceptable()) {
+                        accept((ServerSocketChannel) key.channel());
+                    } else if (key.isReadable()) {
+                        read(key);
+                    }
+                }
+
+                handOffReady();
+                closeIdle();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                System.err.println("NioEventLoop - selector failed: " + e.getMessage());
+                e.printStackTrace(System.err);
+            }
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void accept(ServerSocketChannel serverChannel) {
+        try {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                NioEventLoop target = group[nextLoop];
+                nextLoop = (nextLoop + 1) % group.length;
+                target.register(new NioConnection(channel, target));
+            }
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("NioEventLoop - accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void read(SelectionKey key) {
+        NioConnection connection = (NioConnection) key.attachment();
+        try {
+            int read = connection.readAvailable();
+            if (read == -1) {
+                key.cancel();
+                connection.close();
+                return;
+            }
+            if (connection.hasCompleteHead()) {
+                // The channel can only switch to blocking mode once it is deregistered,
+                // which happens on the next select - see handOffReady()
+                key.cancel();
+                pendingHandoffs.add(connection);
+            }
+        } catch (IOException e) {
+            key.cancel();
+            connection.close();
+        }
+    }
+
+    private void registerPending() {
+        NioConnection connection;
+        while ((connection = pendingRegistrations.poll()) != null) {
+            try {
+                connection.channel().register(selector, SelectionKey.OP_READ, connection);
+                // Pipelined bytes may already hold the next head
+                if (connection.hasCompleteHead()) {
+                    connection.channel().keyFor(selector).cancel();
+                    pendingHandoffs.add(connection);
+                }
+            } catch (IOException | CancelledKeyException e) {
+                connection.close();
+            }
+        }
+    }
+
+    private void handOffReady() throws IOException {
+        if (pendingHandoffs.isEmpty()) return;
+
+        // Flush cancelled keys so the channels are no longer registered with this selector
+        selector.selectNow();
+        for (NioConnection connection : pendingHandoffs) {
+            try {
+                connection.channel().configureBlocking(true);
+                requestHandler.accept(connection);
+            } catch (Exception e) {
+                System.err.println("NioEventLoop - handoff failed: " + e.getMessage());
+                connection.close();
+            }
+        }
+        pendingHandoffs.clear();
+    }
+
+    private void closeIdle() {
+        long now = System.currentTimeMillis();
+        if (now - lastIdleSweep < SELECT_TIMEOUT_MS) return;
+        lastIdleSweep = now;
+
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof NioConnection connection
+                    && now - connection.lastActive() > idleTimeoutMs) {
+                key.cancel();
+                connection.close();
+            }
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof NioConnection connection) {
+                connection.close();
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // Explicitly silenced - shutting down anyway
+        }
+    }
+}
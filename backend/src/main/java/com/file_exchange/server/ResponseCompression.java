@@ -0,0 +1,115 @@
+package com.file_exchange.server;
+
+import com.file_exchange.handlers.utilsFiles.MimeTypeUtils;
+import com.file_exchange.http.CompressedFileBody;
+import com.file_exchange.http.HttpResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content-Encoding negotiated from Accept-Encoding. A compressed body is produced while it is written,
+ * so it is always sent chunked: its length is only known once it has been sent.
+ */
+final class ResponseCompression {
+    // Below this the encoding overhead and the chunk framing cost more than compression saves
+    static final int MIN_SIZE = 1024;
+    private static final int BUFFER_SIZE = 8192;
+
+    private ResponseCompression() {
+    }
+
+    /**
+     * The encoding to use for a client's Accept-Encoding, preferring gzip, or null for identity.
+     * Codings refused with q=0 are never picked.
+     */
+    static String negotiate(String acceptEncoding) {
+        double gzip = quality(acceptEncoding, "gzip");
+        double deflate = quality(acceptEncoding, "deflate");
+        if (gzip > 0 && gzip >= deflate) return "gzip";
+        if (deflate > 0) return "deflate";
+        return null;
+    }
+
+    /**
+     * Sends a file stored compressed as it is when the client accepts its codec, which costs no CPU and
+     * keeps sendfile. Otherwise the response keeps the body that decodes it while it is written.
+     */
+    static void useStoredEncoding(HttpResponse response, String acceptEncoding) throws IOException {
+        if (response.getStatusCode() == 200 && response.getStreamingBody() instanceof CompressedFileBody stored
+                && quality(acceptEncoding, stored.getCodec()) > 0) {
+            response.setStreamingBody(stored.encoded());
+            response.getHeaders().put("Content-Encoding", stored.getCodec());
+            weakenETag(response);
+        }
+    }
+
+    /**
+     * A strong ETag names the exact bytes of the identity body. Once they are encoded it only stays valid
+     * as a weak one, which If-None-Match still matches.
+     */
+    static void weakenETag(HttpResponse response) {
+        String etag = response.getHeaders().get("ETag");
+        if (etag != null && !etag.startsWith("W/")) {
+            response.getHeaders().put("ETag", "W/" + etag);
+        }
+    }
+
+    /**
+     * The q value Accept-Encoding gives a coding, 0 when it is not accepted.
+     */
+    private static double quality(String acceptEncoding, String coding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) return 0;
+        // null while the coding is not mentioned, so "*" can stand in for it
+        Double named = null;
+        double any = 0;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String name = params[0].trim().toLowerCase();
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (name.equals(coding) || ("gzip".equals(coding) && name.equals("x-gzip"))) {
+                named = q;
+            } else if (name.equals("*")) {
+                any = q;
+            }
+        }
+        return named != null ? named : any;
+    }
+
+    /**
+     * Whether the response is worth compressing at all, whatever the client accepts.
+     * Partial content is left alone: Content-Range counts bytes of the identity body.
+     */
+    static boolean isCompressible(HttpResponse response) {
+        if (response.getStatusCode() != 200 || response.getHeaders().containsKey("Content-Encoding")) {
+            return false;
+        }
+        long length = response.getContentLength();
+        if (length >= 0 && length < MIN_SIZE) {
+            return false;
+        }
+        return !MimeTypeUtils.isCompressedType(response.getContentType());
+    }
+
+    /**
+     * Wraps the chunked body stream. Closing the returned stream writes the trailer and the last chunk.
+     */
+    static OutputStream encode(String encoding, OutputStream chunks) throws IOException {
+        return "gzip".equals(encoding)
+                ? new GZIPOutputStream(chunks, BUFFER_SIZE)
+                // HTTP "deflate" is the zlib format, which is what a default Deflater writes
+                : new DeflaterOutputStream(chunks);
+    }
+}
@@ -0,0 +1,21 @@
+package com.file_exchange.server;
+
+/**
+ * How CustomWebServer accepts and idles connections.
+ */
+public enum ServerMode {
+    /**
+     * One blocking accept loop, every connection pinned to an executor task for its whole keep-alive life.
+     */
+    BLOCKING,
+    /**
+     * Selector event loops own accept, request-head reads and keep-alive idling;
+     * a connection reaches the executor only once a full request head has arrived.
+     */
+    NIO;
+
+    public static ServerMode fromEnv() {
+        String mode = System.getenv("SERVER_MODE");
+        return mode != null && mode.trim().equalsIgnoreCase("nio") ? NIO : BLOCKING;
+    }
+}
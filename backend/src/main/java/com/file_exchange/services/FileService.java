@@ -1,104 +1,435 @@
 package com.file_exchange.services;
 
+import com.file_exchange.cache.FileContentCache;
+import com.file_exchange.dto.Conditional;
+import com.file_exchange.dto.FileArchiveDto;
 import com.file_exchange.dto.FileDto;
+import com.file_exchange.dto.FilePage;
+import com.file_exchange.dto.FileStat;
+import com.file_exchange.dto.FileSummary;
 import com.file_exchange.handlers.utilsFiles.MimeTypeUtils;
 import com.file_exchange.handlers.utilsFiles.TempFileInputStream;
 import com.file_exchange.repository.FileRepository;
+import com.file_exchange.repository.FileSort;
+import com.file_exchange.storage.BlobStore;
+import com.file_exchange.storage.StorageCodec;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
 import com.file_exchange.entity.File;
 
 public class FileService {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_ARCHIVE_FILES = 1000;
+    // Users share a version slot when their ids collide; a change then only costs the other one a refetch
+    private static final int LISTING_VERSION_SLOTS = 4096;
+
     private final FileRepository fileRepository;
-    private final String uploadsDir = "uploads";
+    // Null when downloads always go to disk
+    private final FileContentCache contentCache;
+    // Null when uploads are always stored as they are
+    private final StorageCodec storageCodec;
+    private final Path stagingDir;
+    private final BlobStore blobStore;
+    // Bumped after every committed change to a user's files; the listing ETags are derived from it.
+    // The versions start over on restart, so the ETags also carry the start time of this instance.
+    private final AtomicLongArray listingVersions = new AtomicLongArray(LISTING_VERSION_SLOTS);
+    private final String listingEpoch = Long.toString(System.currentTimeMillis(), 36);
 
     public FileService(FileRepository fileRepository) {
+        this(fileRepository, null);
+    }
+
+    public FileService(FileRepository fileRepository, FileContentCache contentCache) {
+        this(fileRepository, contentCache, null);
+    }
+
+    public FileService(FileRepository fileRepository, FileContentCache contentCache, StorageCodec storageCodec) {
+        this(fileRepository, contentCache, storageCodec, Paths.get("uploads"));
+    }
+
+    /**
+     * @param uploadsDir base directory of the blob store and of the staging area uploads are written to first
+     */
+    public FileService(FileRepository fileRepository, FileContentCache contentCache, StorageCodec storageCodec,
+                       Path uploadsDir) {
         this.fileRepository = fileRepository;
+        this.contentCache = contentCache;
+        this.storageCodec = storageCodec;
+        this.stagingDir = uploadsDir.resolve(".staging");
+        this.blobStore = new BlobStore(uploadsDir.resolve("blobs"));
         // create dir uploads if it doesn't exist
-        new java.io.File(uploadsDir).mkdirs();
+        uploadsDir.toFile().mkdirs();
+        stagingDir.toFile().mkdirs();
     }
 
-    public Long uploadFile(Long userId, InputStream fileStream, String fileName, long size) {
-        String userDir = uploadsDir + "/" + userId;
-        new java.io.File(userDir).mkdirs(); // create dir for user
+    /**
+     * Where uploads are staged before they are stored. Files staged here reach the blob store by a rename.
+     */
+    public Path getStagingDir() {
+        return stagingDir;
+    }
 
+    /**
+     * Stores the upload by content: the stream is hashed while it is received, identical content is kept
+     * once under uploads/blobs, and the new row takes a reference on that blob. Uploading bytes that are
+     * already stored costs no disk space, and a same-named upload never touches another row's bytes.
+     */
+    public Long uploadFile(Long userId, InputStream fileStream, String fileName, long size) {
         String safeName = sanitizeFileName(fileName != null ? fileName : "unnamed");
-        String filePath = userDir + "/" + safeName;
-        Path targetPath = Paths.get(filePath);
 
         try {
-            // if temp file — just move
+            TempFileInputStream staged;
             if (fileStream instanceof TempFileInputStream tempStream) {
-                Path tempPath = tempStream.getTempFilePath();
-
-                if (!Files.exists(tempPath)) {
-                    throw new IllegalStateException("Temp file does not exist: " + tempPath);
+                // already staged under uploads, so storing it is a rename, not a copy
+                if (!Files.exists(tempStream.getTempFilePath())) {
+                    throw new IllegalStateException("Temp file does not exist: " + tempStream.getTempFilePath());
                 }
+                staged = tempStream;
+            } else {
+                staged = stage(fileStream, safeName);
+            }
+
+            try (staged) {
+                String hash = staged.getContentHash() != null
+                        ? staged.getContentHash() : BlobStore.hash(staged.getTempFilePath());
+                return storeBlob(userId, safeName, staged, hash);
+            }
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Failed to upload file '" + fileName + "' for user " + userId + ": " + e.getMessage(), e);
+        }
+    }
 
-                Files.createDirectories(targetPath.getParent());
+    /**
+     * Streams the body into a staging file, hashing it on the way through. The first bytes are held back
+     * until the storage codec is chosen from them, so a compressible upload is compressed as it arrives.
+     */
+    private TempFileInputStream stage(InputStream fileStream, String safeName) throws IOException {
+        Path partialPath = Files.createTempFile(stagingDir, "upload-", ".partial");
+        MessageDigest digest = BlobStore.newDigest();
+        long size;
+        String codec = null;
+        try (InputStream in = new DigestInputStream(fileStream, digest)) {
+            byte[] sample = in.readNBytes(StorageCodec.SAMPLE_SIZE);
+            if (storageCodec != null) {
+                codec = storageCodec.choose(safeName, sample, sample.length);
+            }
+            try (OutputStream out = StorageCodec.encode(Files.newOutputStream(partialPath), codec)) {
+                out.write(sample);
+                size = sample.length + in.transferTo(out);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(partialPath);
+            throw e;
+        }
+        return new TempFileInputStream(partialPath, safeName, size, BlobStore.toHex(digest), codec);
+    }
 
-               try (tempStream) {
-                   Files.copy(tempPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
-               }
-            } else {
-                try (fileStream; FileOutputStream fos = new FileOutputStream(filePath)) {
-                    fileStream.transferTo(fos);
+    private Long storeBlob(Long userId, String safeName, TempFileInputStream staged, String hash) throws IOException {
+        ReentrantLock lock = blobStore.lockFor(hash);
+        lock.lock();
+        try {
+            boolean created = false;
+            // Content already stored keeps the form it was stored in, whatever this upload was staged as
+            String codec = Files.exists(blobStore.pathFor(hash, StorageCodec.GZIP)) ? StorageCodec.GZIP : null;
+            Path blobPath = blobStore.pathFor(hash, codec);
+            if (!Files.exists(blobPath)) {
+                codec = staged.getCodec();
+                if (codec == null && storageCodec != null) {
+                    // Staged elsewhere (a materialized form part, an assembled resumable upload) without a codec
+                    codec = storageCodec.choose(safeName, staged.getTempFilePath());
                 }
+                blobPath = blobStore.pathFor(hash, codec);
+                Files.createDirectories(blobPath.getParent());
+                if (codec != null && staged.getCodec() == null) {
+                    compressTo(staged.getTempFilePath(), blobPath, codec);
+                } else {
+                    staged.moveTo(blobPath);
+                }
+                created = true;
             }
+            // A duplicate is dropped with the staging file when the caller closes it
 
-            // save metaData in DB
-            File file = new File(null, userId, safeName, filePath, size);
-            Long fileId = fileRepository.saveFile(file);
-
-            return fileId;
+            File file = new File(null, userId, safeName, blobPath.toString(), staged.getFileSize(), hash);
+            file.setCodec(codec);
+            try {
+                Long fileId = fileRepository.saveFile(file);
+                listingChanged(userId);
+                return fileId;
+            } catch (RuntimeException e) {
+                if (created) {
+                    Files.deleteIfExists(blobPath);
+                }
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Failed to upload file '" + fileName + "' for user " + userId + ": " + e.getMessage(), e);
+    /**
+     * Writes the compressed copy next to its final path and renames it into place, so a blob path never
+     * holds a partly written file.
+     */
+    private static void compressTo(Path source, Path blobPath, String codec) throws IOException {
+        Path partial = blobPath.resolveSibling(blobPath.getFileName() + ".partial");
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = StorageCodec.encode(Files.newOutputStream(partial), codec)) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(partial);
+            throw e;
         }
+        Files.move(partial, blobPath, StandardCopyOption.ATOMIC_MOVE);
     }
 
     public List<File> getUserFiles(Long userId) {
         return fileRepository.getUserFiles(userId);
     }
 
+    /**
+     * The listing with a weak ETag derived from the user's change counter. The counter is read before the
+     * query, so a change committed meanwhile can only make the tag stale, never hide the change from the
+     * next poll. A client whose tag is current gets 304 without any query.
+     */
+    public Conditional<List<File>> getUserFiles(Long userId, String ifNoneMatch) {
+        return Conditional.of(ifNoneMatch, null, listingETag(userId), null, () -> getUserFiles(userId));
+    }
+
+    /**
+     * A page of the listing, tagged like {@link #getUserFiles(Long, String)}. The tag is the same for every
+     * page; caches key it by URL, which includes the cursor.
+     */
+    public Conditional<FilePage> getUserFilesPage(Long userId, String sortParam, String order, Integer limit,
+                                                  String cursor, String ifNoneMatch) {
+        return Conditional.of(ifNoneMatch, null, listingETag(userId), null,
+                () -> getUserFilesPage(userId, sortParam, order, limit, cursor));
+    }
+
+    private String listingETag(Long userId) {
+        return "W/\"" + listingEpoch + "-" + listingVersions.get(listingSlot(userId)) + "\"";
+    }
+
+    private void listingChanged(Long userId) {
+        listingVersions.incrementAndGet(listingSlot(userId));
+    }
+
+    private static int listingSlot(Long userId) {
+        return Math.floorMod(Long.hashCode(userId), LISTING_VERSION_SLOTS);
+    }
+
+    /**
+     * One page of the user's files. The cursor is the opaque nextCursor of the previous page;
+     * it remembers the sort it was made for, so it cannot be replayed against another one.
+     */
+    public FilePage getUserFilesPage(Long userId, String sortParam, String order, Integer limit, String cursor) {
+        FileSort sort = FileSort.fromParam(sortParam);
+        boolean descending = "desc".equalsIgnoreCase(order);
+        if (order != null && !descending && !"asc".equalsIgnoreCase(order)) {
+            throw new IllegalArgumentException("Unsupported order: " + order);
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        Object afterValue = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] key = decodeCursor(cursor, sort, descending);
+            afterId = Long.parseLong(key[0]);
+            afterValue = sort == FileSort.SIZE ? (Object) Long.parseLong(key[1]) : key[1];
+        }
+
+        // One extra row tells whether there is a next page without a COUNT query
+        List<FileSummary> rows = fileRepository.getUserFilesPage(userId, sort, descending, afterValue, afterId, pageSize + 1);
+        if (rows.size() <= pageSize) {
+            return new FilePage(rows, null);
+        }
+        List<FileSummary> items = rows.subList(0, pageSize);
+        return new FilePage(items, encodeCursor(sort, descending, items.get(pageSize - 1)));
+    }
+
     public FileDto getUserFile(Long userId, Long fileId) {
         File file = fileRepository.getFileById(fileId, userId);
         if (file == null) {
             throw new IllegalArgumentException("File not found");
         }
-        try {
-            InputStream is = new FileInputStream(file.getFilePath());
-            String contentType = null;
+        return toFileDto(file);
+    }
 
-            try {
-                contentType = Files.probeContentType(Paths.get(file.getFilePath()));
-            }catch (Exception ignore) {
-                // ignore,because there is no need to handle error and print it
-            }
+    /**
+     * A download checked against the client's validators first. The strong ETag is the content hash
+     * (id, size and mtime for files stored before hashing) and Last-Modified is the row's creation time,
+     * so a client whose copy is current gets 304 without the stored file being opened or cached.
+     */
+    public Conditional<FileDto> getUserFile(Long userId, Long fileId, String ifNoneMatch, String ifModifiedSince) {
+        return getUserFile(userId, fileId, ifNoneMatch, ifModifiedSince, false);
+    }
+
+    /**
+     * @param headersOnly the body will not be sent (HEAD): the file is described from a stat and not
+     *                    loaded into the content cache
+     */
+    public Conditional<FileDto> getUserFile(Long userId, Long fileId, String ifNoneMatch, String ifModifiedSince,
+                                            boolean headersOnly) {
+        File file = fileRepository.getFileById(fileId, userId);
+        if (file == null) {
+            throw new IllegalArgumentException("File not found");
+        }
+        Instant lastModified = lastModified(file);
+        String etag = file.getContentHash() != null
+                ? "\"" + file.getContentHash() + "\""
+                : "\"" + file.getId() + "-" + file.getSize() + "-" + lastModified.toEpochMilli() + "\"";
+        return Conditional.of(ifNoneMatch, ifModifiedSince, etag, lastModified, () -> toFileDto(file, headersOnly));
+    }
+
+    /**
+     * Size, type and hash of a file from its row. The type is detected the same way as for the download,
+     * so the stat always describes the response a GET would send.
+     */
+    public FileStat getUserFileStat(Long userId, Long fileId) {
+        File file = fileRepository.getFileById(fileId, userId);
+        if (file == null) {
+            throw new IllegalArgumentException("File not found");
+        }
+        return new FileStat(file.getId(), file.getFileName(), file.getSize(), contentType(file),
+                file.getContentHash());
+    }
+
+    private FileDto toFileDto(File file) {
+        return toFileDto(file, false);
+    }
 
-            if (contentType == null || contentType.isBlank()) {
-                contentType = MimeTypeUtils.detect(file.getFileName());
+    private FileDto toFileDto(File file, boolean headersOnly) {
+        Path path = Paths.get(file.getFilePath());
+        if (file.getCodec() != null) {
+            // Stored compressed: sent as it is to clients that accept the codec, decoded on the fly for the
+            // others. The content cache holds plain bytes, so these files bypass it.
+            return new FileDto(file.getFileName(), contentType(file), path, file.getSize(),
+                    lastModified(file), null, file.getCodec());
+        }
+        if (contentCache != null && !headersOnly) {
+            FileContentCache.CachedFile cached = contentCache.get(path);
+            if (cached != null) {
+                // Blobs are shared between names, so the type comes from this row's name, not the cache
+                return new FileDto(file.getFileName(), contentType(file), path, cached.size(),
+                        lastModified(file), cached.content());
             }
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new FileDto(file.getFileName(), contentType(file), path, attributes.size(),
+                    lastModified(file));
+        } catch (IOException e) {
+            throw new RuntimeException("File not found", e);
+        }
+    }
 
-            return new FileDto(file.getFileName(),contentType,is);
-        } catch (FileNotFoundException e) {
+    /**
+     * Taken from the row, never from a shared blob: the blob's mtime is when anyone first stored those
+     * bytes, which would tell one user about another's upload. Null for rows that point at a blob but were
+     * stored before the creation time was recorded.
+     */
+    private static Instant lastModified(File file) {
+        if (file.getCreatedAt() != null) {
+            return Instant.ofEpochMilli(file.getCreatedAt());
+        }
+        if (file.getContentHash() != null) {
+            return null;
+        }
+        // Stored before content addressing, the row owns its file
+        try {
+            return Files.getLastModifiedTime(Paths.get(file.getFilePath())).toInstant();
+        } catch (IOException e) {
             throw new RuntimeException("File not found", e);
         }
     }
 
+    /**
+     * The files for a bulk ZIP download, in the order they were asked for.
+     * Ownership of all of them is checked with a single query; one missing id fails the whole request.
+     */
+    public FileArchiveDto getUserFilesArchive(Long userId, List<Long> fileIds) {
+        if (fileIds == null || fileIds.isEmpty()) {
+            throw new IllegalArgumentException("No files requested");
+        }
+        Set<Long> requested = new LinkedHashSet<>(fileIds);
+        if (requested.size() > MAX_ARCHIVE_FILES) {
+            throw new IllegalArgumentException("At most " + MAX_ARCHIVE_FILES + " files per archive");
+        }
+
+        Map<Long, File> owned = new HashMap<>();
+        for (File file : fileRepository.getUserFilesByIds(userId, requested)) {
+            owned.put(file.getId(), file);
+        }
+        List<FileDto> files = new ArrayList<>(requested.size());
+        for (Long fileId : requested) {
+            File file = owned.get(fileId);
+            if (file == null) {
+                throw new IllegalArgumentException("File not found: " + fileId);
+            }
+            Path path = Paths.get(file.getFilePath());
+            // ZIP entries carry no content type, so nothing is probed per file
+            files.add(new FileDto(file.getFileName(), null, path, file.getSize(), null, null, file.getCodec()));
+        }
+        return new FileArchiveDto("files.zip", files);
+    }
+
     public void deleteFile(Long userId, Long fileId) {
         File file = fileRepository.getFileById(fileId, userId);
         if(file == null) {
             throw new IllegalArgumentException("File not found");
         }
 
-       Path path = Paths.get(file.getFilePath());
+        Path path = Paths.get(file.getFilePath());
+        String hash = file.getContentHash();
+        try {
+            if (hash == null) {
+                // Stored before content addressing, the row owns its file
+                deleteFromDisk(path);
+                fileRepository.deleteFile(fileId, userId);
+                listingChanged(userId);
+                return;
+            }
+            ReentrantLock lock = blobStore.lockFor(hash);
+            lock.lock();
+            try {
+                fileRepository.deleteFile(fileId, userId);
+                listingChanged(userId);
+                // Under the lock no upload of the same content can take a new reference in between
+                if (fileRepository.getBlobReferences(hash) == 0) {
+                    deleteFromDisk(path);
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            if (contentCache != null) {
+                contentCache.invalidate(path);
+            }
+        }
+    }
 
+    private static void deleteFromDisk(Path path) {
        try{
            if(Files.exists(path)){
               try{
@@ -115,7 +446,6 @@ public class FileService {
        } catch (IOException e) {
            throw new RuntimeException("Failed to delete file: " + e.getMessage(), e);
        }
-        fileRepository.deleteFile(fileId,userId);
     }
 
     public String getFilePath(Long userId, Long fileId) {
@@ -123,6 +453,57 @@ public class FileService {
         return file != null ? file.getFilePath() : null;
     }
 
+    private static String encodeCursor(FileSort sort, boolean descending, FileSummary last) {
+        String value = switch (sort) {
+            case ID -> "";
+            case NAME -> last.getFileName();
+            case SIZE -> String.valueOf(last.getSize());
+        };
+        String key = sort.name() + "|" + (descending ? "d" : "a") + "|" + last.getId() + "|" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns {lastId, lastValue} from a cursor made for the same sort and order.
+     */
+    private static String[] decodeCursor(String cursor, FileSort sort, boolean descending) {
+        String key;
+        try {
+            key = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String[] parts = key.split("\\|", 4);
+        if (parts.length != 4 || !parts[0].equals(sort.name()) || !parts[1].equals(descending ? "d" : "a")) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return new String[]{parts[2], parts[3]};
+    }
+
+    /**
+     * A compressed blob would probe as gzip, so files stored with a codec are typed by name alone.
+     */
+    private static String contentType(File file) {
+        if (file.getCodec() != null) {
+            return MimeTypeUtils.detect(file.getFileName());
+        }
+        return detectContentType(Paths.get(file.getFilePath()), file.getFileName());
+    }
+
+    private static String detectContentType(Path path, String fileName) {
+        String contentType = null;
+        try {
+            contentType = Files.probeContentType(path);
+        }catch (Exception ignore) {
+            // ignore,because there is no need to handle error and print it
+        }
+
+        if (contentType == null || contentType.isBlank()) {
+            contentType = MimeTypeUtils.detect(fileName);
+        }
+        return contentType;
+    }
+
     private String sanitizeFileName(String fileName) {
         if (fileName == null) return "unnamed";
         // remove path only the name of file
@@ -0,0 +1,371 @@
+package com.file_exchange.services;
+
+import com.file_exchange.entity.UploadSession;
+import com.file_exchange.handlers.utilsFiles.TempFileInputStream;
+import com.file_exchange.repository.UploadSessionRepository;
+import com.file_exchange.storage.BlobStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Resumable uploads: a session is created, its bytes arrive as chunks appended at the current offset,
+ * and completing it hands the assembled file to FileService like any other upload.
+ * Sessions live in SQLite and their bytes in the staging directory, so an interrupted upload resumes
+ * from the last stored offset even across a restart. Idle sessions expire after the TTL.
+ *
+ * Parallel uploads fix the length and chunk size up front. Their chunks can then be sent over several
+ * connections at once: each is checksummed as it arrives and written with positional writes straight
+ * into its slot of a preallocated file, so assembling them costs nothing at completion.
+ */
+public class UploadService {
+    private static final Duration DEFAULT_TTL = Duration.ofHours(24);
+    // Expired sessions are looked for at most this often, when new sessions are created
+    private static final long PURGE_INTERVAL_MS = 60_000;
+    private static final int CHUNK_BUFFER_SIZE = 64 * 1024;
+    private static final long MAX_CHUNK_SIZE = 256L * 1024 * 1024;
+
+    private final UploadSessionRepository sessionRepository;
+    private final FileService fileService;
+    private final Path stagingDir;
+    private final long ttlMillis;
+    // Parallel chunks of a session share its read lock; sequential chunks and completion take the write lock.
+    // A request that cannot get its lock at once is rejected, not queued
+    private final Map<String, ReentrantReadWriteLock> sessionLocks = new ConcurrentHashMap<>();
+    // "<uploadId>:<index>" of parallel chunks being written, so one slot is never written twice at once
+    private final Set<String> busyChunks = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nextPurge = new AtomicLong();
+
+    public UploadService(UploadSessionRepository sessionRepository, FileService fileService) {
+        this(sessionRepository, fileService, fileService.getStagingDir(), DEFAULT_TTL);
+    }
+
+    public UploadService(UploadSessionRepository sessionRepository, FileService fileService,
+                         Path stagingDir, Duration ttl) {
+        this.sessionRepository = sessionRepository;
+        this.fileService = fileService;
+        this.stagingDir = stagingDir;
+        this.ttlMillis = ttl.toMillis();
+        try {
+            Files.createDirectories(stagingDir);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create staging directory " + stagingDir, e);
+        }
+    }
+
+    public UploadSession createUpload(Long userId, String fileName, Long length) {
+        return createUpload(userId, fileName, length, null);
+    }
+
+    /**
+     * @param chunkSize null for a sequential upload; for a parallel one the size of every chunk but the last,
+     *                  which requires length
+     */
+    public UploadSession createUpload(Long userId, String fileName, Long length, Long chunkSize) {
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("fileName is required");
+        }
+        if (length != null && length < 0) {
+            throw new IllegalArgumentException("length must not be negative");
+        }
+        if (chunkSize != null) {
+            if (length == null) {
+                throw new IllegalArgumentException("A parallel upload needs its length");
+            }
+            if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE) {
+                throw new IllegalArgumentException("chunkSize must be between 1 and " + MAX_CHUNK_SIZE);
+            }
+        }
+        purgeExpiredSessions();
+
+        UploadSession session = new UploadSession(UUID.randomUUID().toString(), userId, fileName, length, 0,
+                System.currentTimeMillis() + ttlMillis, chunkSize);
+        try {
+            Files.createFile(dataPath(session.getId()));
+            if (chunkSize != null) {
+                // Every chunk has its slot from the start; the file is sparse until the chunks arrive
+                try (RandomAccessFile file = new RandomAccessFile(dataPath(session.getId()).toFile(), "rw")) {
+                    file.setLength(length);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create upload file", e);
+        }
+        sessionRepository.createSession(session);
+        return session;
+    }
+
+    public UploadSession getUpload(Long userId, String uploadId) {
+        UploadSession session = sessionRepository.getSession(uploadId, userId);
+        if (session == null || session.getExpiresAt() <= System.currentTimeMillis()) {
+            throw new IllegalArgumentException("Upload not found");
+        }
+        return session;
+    }
+
+    /**
+     * Appends a chunk that starts at offset, which must be the session's current offset.
+     * Bytes are synced to disk before the new offset is recorded, so a recorded offset never points past
+     * data that could be lost. If the client drops mid-chunk, the bytes that did arrive are kept.
+     */
+    public UploadSession appendChunk(Long userId, String uploadId, long offset, InputStream chunk) {
+        getUpload(userId, uploadId);
+        Lock lock = exclusiveLock(uploadId);
+        try {
+            // Read again under the lock: an append that committed meanwhile moved the offset, and truncating
+            // to a stale one would cut off bytes that are already recorded
+            UploadSession session = getUpload(userId, uploadId);
+            if (session.isParallel()) {
+                throw new IllegalArgumentException("Chunks of a parallel upload are sent by index");
+            }
+            if (offset != session.getOffset()) {
+                throw new IllegalArgumentException("Upload offset mismatch: expected " + session.getOffset());
+            }
+            long newOffset = offset;
+            IOException failure = null;
+            try (FileChannel channel = FileChannel.open(dataPath(uploadId), StandardOpenOption.WRITE)) {
+                // Drops bytes a crash may have left past the last recorded offset
+                channel.truncate(offset);
+                try {
+                    newOffset = copy(chunk, channel, offset, session.getLength());
+                } catch (IOException e) {
+                    failure = e;
+                    newOffset = channel.size();
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to store upload chunk", e);
+            }
+
+            long expiresAt = System.currentTimeMillis() + ttlMillis;
+            if (!sessionRepository.updateOffset(uploadId, offset, newOffset, expiresAt)) {
+                throw new IllegalArgumentException("Upload " + uploadId + " changed concurrently");
+            }
+            if (failure != null) {
+                throw new RuntimeException("Upload chunk interrupted at offset " + newOffset, failure);
+            }
+            return new UploadSession(uploadId, userId, session.getFileName(), session.getLength(), newOffset, expiresAt);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes chunk number index of a parallel upload into its slot. Chunks may arrive in any order and over
+     * several connections at once; sending a chunk again replaces it.
+     *
+     * @param expectedSha256 hex SHA-256 the client computed for the chunk, or null to only record the server's
+     * @return the SHA-256 of the chunk as received
+     */
+    public String putChunk(Long userId, String uploadId, long index, String expectedSha256, InputStream chunk) {
+        UploadSession session = getUpload(userId, uploadId);
+        if (!session.isParallel()) {
+            throw new IllegalArgumentException("Chunks of a sequential upload are appended at the offset");
+        }
+        if (index < 0 || index >= session.getChunkCount()) {
+            throw new IllegalArgumentException("Chunk index must be between 0 and " + (session.getChunkCount() - 1));
+        }
+        long position = index * session.getChunkSize();
+        long chunkLength = Math.min(session.getChunkSize(), session.getLength() - position);
+
+        Lock lock = sessionLock(uploadId).readLock();
+        if (!lock.tryLock()) {
+            throw new IllegalArgumentException("Upload " + uploadId + " is busy");
+        }
+        String chunkKey = uploadId + ":" + index;
+        try {
+            // Aborted or purged while this request waited for the lock
+            getUpload(userId, uploadId);
+            if (!busyChunks.add(chunkKey)) {
+                throw new IllegalArgumentException("Chunk " + index + " is already being uploaded");
+            }
+            try {
+                MessageDigest digest = BlobStore.newDigest();
+                String sha256;
+                try (FileChannel channel = FileChannel.open(dataPath(uploadId), StandardOpenOption.WRITE)) {
+                    long written = copy(new DigestInputStream(chunk, digest), channel, position, position + chunkLength)
+                            - position;
+                    if (written != chunkLength) {
+                        throw new IllegalArgumentException("Chunk " + index + " must be " + chunkLength + " bytes");
+                    }
+                    channel.force(false);
+                    sha256 = BlobStore.toHex(digest);
+                    if (expectedSha256 != null && !expectedSha256.trim().equalsIgnoreCase(sha256)) {
+                        throw new IllegalArgumentException("Chunk " + index + " checksum mismatch");
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // The slot may hold part of this attempt now, so the chunk counts as missing until sent again
+                    sessionRepository.deleteChunk(uploadId, index);
+                    if (e instanceof IOException) {
+                        throw new RuntimeException("Failed to store upload chunk", e);
+                    }
+                    throw (RuntimeException) e;
+                }
+                if (!sessionRepository.saveChunk(uploadId, index, sha256, System.currentTimeMillis() + ttlMillis)) {
+                    throw new IllegalArgumentException("Upload not found");
+                }
+                return sha256;
+            } finally {
+                busyChunks.remove(chunkKey);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Indexes of the chunks of a parallel upload received so far; a client resumes by sending the others.
+     */
+    public List<Long> getReceivedChunks(Long userId, String uploadId) {
+        getUpload(userId, uploadId);
+        return sessionRepository.getChunkIndexes(uploadId);
+    }
+
+    public Long completeUpload(Long userId, String uploadId) {
+        return completeUpload(userId, uploadId, null);
+    }
+
+    /**
+     * Checks the upload is complete, stores it through FileService and ends the session. Returns the new file id.
+     *
+     * @param expectedSha256 hex SHA-256 of the whole file as the client computed it, or null to skip the check
+     */
+    public Long completeUpload(Long userId, String uploadId, String expectedSha256) {
+        getUpload(userId, uploadId);
+        Lock lock = exclusiveLock(uploadId);
+        try {
+            UploadSession session = getUpload(userId, uploadId);
+            long size = session.getOffset();
+            if (session.isParallel()) {
+                int received = sessionRepository.getChunkIndexes(uploadId).size();
+                if (received != session.getChunkCount()) {
+                    throw new IllegalArgumentException("Upload incomplete: " + received + " of "
+                            + session.getChunkCount() + " chunks received");
+                }
+                size = session.getLength();
+            } else if (session.getLength() != null && session.getOffset() != session.getLength()) {
+                throw new IllegalArgumentException("Upload incomplete: " + session.getOffset() + " of "
+                        + session.getLength() + " bytes received");
+            }
+
+            Path data = dataPath(uploadId);
+            // Hashed once here; the blob store reuses it instead of reading the file again
+            String sha256 = BlobStore.hash(data);
+            if (expectedSha256 != null && !expectedSha256.trim().equalsIgnoreCase(sha256)) {
+                throw new IllegalArgumentException("Upload checksum mismatch");
+            }
+            TempFileInputStream assembled = new TempFileInputStream(data, session.getFileName(), size, sha256);
+            // The staged bytes are moved into storage, not copied
+            Long fileId;
+            try {
+                fileId = fileService.uploadFile(userId, assembled, session.getFileName(), size);
+            } catch (RuntimeException e) {
+                // Storing consumes the staged file even when it fails; the session must not outlive its data
+                if (!Files.exists(data)) {
+                    sessionRepository.deleteSession(uploadId);
+                    sessionLocks.remove(uploadId);
+                }
+                throw e;
+            }
+            sessionRepository.deleteSession(uploadId);
+            sessionLocks.remove(uploadId);
+            return fileId;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to complete upload", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void abortUpload(Long userId, String uploadId) {
+        getUpload(userId, uploadId);
+        Lock lock = exclusiveLock(uploadId);
+        try {
+            discard(uploadId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the stream at position with positional writes, so concurrent chunks never share a file position.
+     * Returns the position after the last byte written.
+     */
+    private long copy(InputStream chunk, FileChannel channel, long position, Long limit) throws IOException {
+        byte[] buffer = new byte[CHUNK_BUFFER_SIZE];
+        ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+        int read;
+        while ((read = chunk.read(buffer)) != -1) {
+            if (limit != null && position + read > limit) {
+                throw new IllegalArgumentException("Chunk runs past the end of its slot at byte " + limit);
+            }
+            wrapped.clear().limit(read);
+            while (wrapped.hasRemaining()) {
+                position += channel.write(wrapped, position);
+            }
+        }
+        return position;
+    }
+
+    private void purgeExpiredSessions() {
+        long now = System.currentTimeMillis();
+        long due = nextPurge.get();
+        if (now < due || !nextPurge.compareAndSet(due, now + PURGE_INTERVAL_MS)) {
+            return;
+        }
+        for (UploadSession expired : sessionRepository.getExpiredSessions(now)) {
+            // A session with a request in flight is left for the next purge rather than deleted under it
+            Lock lock = sessionLock(expired.getId()).writeLock();
+            if (lock.tryLock()) {
+                try {
+                    discard(expired.getId());
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private ReentrantReadWriteLock sessionLock(String uploadId) {
+        return sessionLocks.computeIfAbsent(uploadId, id -> new ReentrantReadWriteLock());
+    }
+
+    private Lock exclusiveLock(String uploadId) {
+        Lock lock = sessionLock(uploadId).writeLock();
+        if (!lock.tryLock()) {
+            throw new IllegalArgumentException("Upload " + uploadId + " is busy");
+        }
+        return lock;
+    }
+
+    private void discard(String uploadId) {
+        sessionRepository.deleteSession(uploadId);
+        sessionLocks.remove(uploadId);
+        try {
+            Files.deleteIfExists(dataPath(uploadId));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to delete upload data: " + e.getMessage(), e);
+        }
+    }
+
+    private Path dataPath(String uploadId) {
+        return stagingDir.resolve(uploadId + ".upload");
+    }
+}
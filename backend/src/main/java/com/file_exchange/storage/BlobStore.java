@@ -0,0 +1,81 @@
+package com.file_exchange.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Content-addressed file storage: each distinct content is stored once, under its SHA-256,
+ * at root/ab/cd/abcd... so no directory grows past a few thousand entries.
+ * Blobs are immutable; who references them is tracked in the blobs table, not here.
+ *
+ * Storing a blob and dropping its last reference must not interleave for the same hash,
+ * callers hold lockFor(hash) around the disk operation and the reference count update.
+ */
+public class BlobStore {
+    private static final int LOCK_STRIPES = 64;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path root;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public BlobStore(Path root) {
+        this.root = root;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public Path pathFor(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    /**
+     * Where the blob is kept when it is stored with a StorageCodec: next to the plain path, with the
+     * codec as extension. A content is only ever stored in one of the two forms.
+     */
+    public Path pathFor(String hash, String codec) {
+        Path plain = pathFor(hash);
+        return codec == null ? plain : plain.resolveSibling(hash + "." + codec);
+    }
+
+    public boolean exists(String hash) {
+        return Files.exists(pathFor(hash)) || Files.exists(pathFor(hash, StorageCodec.GZIP));
+    }
+
+    public ReentrantLock lockFor(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static String toHex(MessageDigest digest) {
+        return HEX.formatHex(digest.digest());
+    }
+
+    /**
+     * Hashes a file that was staged without computing its hash on the way in.
+     */
+    public static String hash(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHex(digest);
+    }
+}
@@ -0,0 +1,128 @@
+package com.file_exchange.storage;
+
+import com.file_exchange.handlers.utilsFiles.MimeTypeUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of blobs at rest. Whether an upload is stored gzipped is decided from its first bytes:
+ * formats known to be compressed already are stored as they are, anything else is stored gzipped when
+ * a fast trial compression of that sample shrinks it enough to be worth it.
+ * The gzip format is the same as the HTTP Content-Encoding, so a stored blob can be sent as it is.
+ */
+public class StorageCodec {
+    public static final String GZIP = "gzip";
+    // Bytes of the upload looked at before deciding, and written only once the decision is made
+    public static final int SAMPLE_SIZE = 64 * 1024;
+    // Below this the gzip header and the extra file format cost more than they save
+    private static final int MIN_SIZE = 4096;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Largest file that is compressed once it is already on disk, which reads and writes it a second time
+    private static final long MAX_RESTAGE_SIZE = 64L * 1024 * 1024;
+
+    // Largest compressed/original ratio of the sample for which the upload is stored compressed
+    private final double maxRatio;
+    private final long maxRestageSize;
+
+    public StorageCodec(double maxRatio) {
+        this(maxRatio, MAX_RESTAGE_SIZE);
+    }
+
+    public StorageCodec(double maxRatio, long maxRestageSize) {
+        this.maxRatio = maxRatio;
+        this.maxRestageSize = maxRestageSize;
+    }
+
+    /**
+     * Compression at rest is opt-in: on when STORAGE_COMPRESSION is "gzip", otherwise null is returned.
+     * It trades CPU for disk: compressed files are decoded on every download by a client that does not
+     * accept gzip, a byte range decodes everything before it and several ranges get the full file, and
+     * they are not held in the content cache.
+     */
+    public static StorageCodec fromEnv() {
+        String setting = System.getenv().getOrDefault("STORAGE_COMPRESSION", "off");
+        if (!GZIP.equalsIgnoreCase(setting)) {
+            return null;
+        }
+        return new StorageCodec(0.8);
+    }
+
+    /**
+     * The codec to store an upload with, or null to store it as it is.
+     *
+     * @param sample the first bytes of the upload, length of them valid
+     */
+    public String choose(String fileName, byte[] sample, int length) {
+        if (length < MIN_SIZE || MimeTypeUtils.isCompressed(fileName)) {
+            return null;
+        }
+        String sniffed = MimeTypeUtils.sniff(sample, length);
+        if (sniffed != null && MimeTypeUtils.isCompressedType(sniffed)) {
+            return null;
+        }
+        // Fastest level: this only estimates, the stored copy is compressed at the default level
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(sample, 0, length);
+            deflater.finish();
+            byte[] out = new byte[length];
+            int compressed = 0;
+            while (!deflater.finished() && compressed < length) {
+                compressed += deflater.deflate(out, compressed, length - compressed);
+            }
+            return deflater.finished() && compressed <= length * maxRatio ? GZIP : null;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Same as {@link #choose(String, byte[], int)} for content that is already in a file, such as an
+     * assembled resumable upload. Compressing it is a second full pass over the file, so files larger
+     * than maxRestageSize are stored as they are.
+     */
+    public String choose(String fileName, Path file) throws IOException {
+        if (Files.size(file) > maxRestageSize) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] sample = in.readNBytes(SAMPLE_SIZE);
+            return choose(fileName, sample, sample.length);
+        }
+    }
+
+    /**
+     * Wraps out so that what is written to it is stored with codec. Closing the result closes out.
+     */
+    public static OutputStream encode(OutputStream out, String codec) throws IOException {
+        if (codec == null) {
+            return out;
+        }
+        if (GZIP.equals(codec)) {
+            return new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        throw new IllegalArgumentException("Unknown storage codec: " + codec);
+    }
+
+    /**
+     * Opens a stored file and returns its content, decompressed when it is stored with codec.
+     */
+    public static InputStream open(Path file, String codec) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        if (codec == null) {
+            return in;
+        }
+        if (GZIP.equals(codec)) {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+        in.close();
+        throw new IllegalArgumentException("Unknown storage codec: " + codec);
+    }
+}
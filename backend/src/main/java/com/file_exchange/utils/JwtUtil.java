@@ -1,16 +1,32 @@
 package com.file_exchange.utils;
 
+import com.file_exchange.cache.BoundedCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 
 public class JwtUtil {
     private static final String SECRET_KEY = getSecretKey();
     private static final long EXPIRATION_TIME = 86400000L; // 24 hours
+    // Tokens verified recently, so a client's repeat requests skip HMAC verification and claim parsing
+    private static final int VERIFIED_TOKEN_CACHE_SIZE = 10_000;
+
+    // Derived once - the key and the parser are immutable and thread-safe
+    private static final SecretKey KEY = Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
+    private static final JwtParser PARSER = Jwts.parser().verifyWith(KEY).build();
+    private static final MessageDigest SHA_256 = sha256();
+    // Keyed by the SHA-256 of the token, so bearer tokens themselves are never kept in memory
+    private static final BoundedCache<ByteBuffer, VerifiedToken> VERIFIED_TOKENS =
+            BoundedCache.ofSize(VERIFIED_TOKEN_CACHE_SIZE);
 
     private static String getSecretKey() {
         String key = System.getenv("JWT_SECRET");
@@ -26,25 +42,53 @@ public class JwtUtil {
     }
 
     public static String generateToken(Long userId) {
-        SecretKey key = Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
         return Jwts.builder()
                 .setSubject(String.valueOf(userId))
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(key, SignatureAlgorithm.HS256)
+                .signWith(KEY, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public static String validateToken(String token) {
+        ByteBuffer tokenHash = hash(token);
+        VerifiedToken cached = VERIFIED_TOKENS.getIfPresent(tokenHash);
+        if (cached != null) {
+            if (System.currentTimeMillis() < cached.expiresAt()) {
+                return cached.subject();
+            }
+            VERIFIED_TOKENS.invalidate(tokenHash);
+        }
+
         try {
-            SecretKey key = Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
-            return Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload()
-                    .getSubject();
+            Claims claims = PARSER.parseSignedClaims(token).getPayload();
+            // Only tokens that expire are cached, and only until they do
+            if (claims.getExpiration() != null) {
+                VERIFIED_TOKENS.put(tokenHash, new VerifiedToken(claims.getSubject(), claims.getExpiration().getTime()));
+            }
+            return claims.getSubject();
         } catch (Exception e) {
             throw new IllegalArgumentException("Invalid or expired JWT token", e);
         }
     }
+
+    private static ByteBuffer hash(String token) {
+        MessageDigest digest;
+        try {
+            digest = (MessageDigest) SHA_256.clone();
+        } catch (CloneNotSupportedException e) {
+            digest = sha256();
+        }
+        return ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record VerifiedToken(String subject, long expiresAt) {
+    }
 }
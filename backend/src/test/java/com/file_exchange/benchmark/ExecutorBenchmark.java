@@ -0,0 +1,77 @@
+package com.file_exchange.benchmark;
+
+import com.file_exchange.executor.CustomExecutorService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Task throughput of the executor modes, per batch of TASKS tiny tasks:
+ *
+ *   mvn test-compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/bench.cp
+ *   java -cp target/test-classes:target/classes:$(cat target/bench.cp) org.openjdk.jmh.Main ExecutorBenchmark
+ *
+ * externalSubmit hands every task over from one outside thread, as the accept loop does with connections;
+ * nestedSubmit has the tasks fan out from inside the pool, where the work-stealing pool keeps them local.
+ * workers is the pool size; to see how the modes scale with the machine rather than the pool, pin the run
+ * to as many cores, e.g. taskset -c 0-3 with -p workers=4 or -jvmArgsAppend -XX:ActiveProcessorCount=4.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutorBenchmark {
+    private static final int TASKS = 10_000;
+    private static final int FAN_OUT = 100;
+
+    @Param({"platform", "virtual", "workStealing"})
+    public String mode;
+
+    @Param({"4", "16", "64"})
+    public int workers;
+
+    private CustomExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        executor = switch (mode) {
+            case "platform" -> CustomExecutorService.newPlatformThreadPool(workers);
+            case "virtual" -> CustomExecutorService.newVirtualThreadPool(workers);
+            case "workStealing" -> CustomExecutorService.newWorkStealingPool(workers);
+            default -> throw new IllegalArgumentException("Unknown mode: " + mode);
+        };
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void externalSubmit() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            executor.execute(done::countDown);
+        }
+        done.await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void nestedSubmit() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(TASKS);
+        for (int i = 0; i < TASKS / FAN_OUT; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < FAN_OUT; j++) {
+                    executor.execute(done::countDown);
+                }
+            });
+        }
+        done.await();
+    }
+}
@@ -0,0 +1,104 @@
+package com.file_exchange.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BoundedCache tests")
+public class BoundedCacheTest {
+
+    @Test
+    @DisplayName("Should count hits and misses and load each missing key once")
+    void testHitsAndMisses() {
+        BoundedCache<String, String> cache = BoundedCache.ofSize(100);
+        int[] loads = {0};
+
+        assertEquals("A", cache.get("a", key -> { loads[0]++; return "A"; }));
+        assertEquals("A", cache.get("a", key -> { loads[0]++; return "A"; }));
+        assertNull(cache.get("missing", key -> null));
+
+        CacheStats stats = cache.stats();
+        assertEquals(1, loads[0]);
+        assertEquals(1, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(1, stats.size());
+    }
+
+    @Test
+    @DisplayName("Should stay within its weight budget")
+    void testWeightBound() {
+        BoundedCache<Integer, byte[]> cache = new BoundedCache<>(10_000, 100, value -> value.length);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, new byte[ThreadLocalRandom.current().nextInt(50, 500)]);
+        }
+        assertTrue(cache.stats().weight() <= 10_000);
+        assertTrue(cache.stats().evictions() > 0);
+
+        cache.put(-1, new byte[20_000]);
+        assertNull(cache.getIfPresent(-1));
+    }
+
+    @Test
+    @DisplayName("Should keep entries that stay popular through a scan of one-off keys")
+    void testScanResistance() {
+        BoundedCache<Integer, Integer> cache = BoundedCache.ofSize(200);
+        for (int round = 0; round < 20; round++) {
+            for (int hot = 0; hot < 100; hot++) {
+                cache.get(hot, key -> key);
+            }
+        }
+        // A crawler walks thousands of keys once each while the hot set keeps being requested.
+        // Between two uses of a hot key come ~300 cold ones, more than the cache holds, which a plain LRU would lose
+        for (int cold = 1000; cold < 10_000; cold++) {
+            cache.get(cold, key -> key);
+            if (cold % 3 == 0) {
+                cache.get((cold / 3) % 100, key -> key);
+            }
+        }
+
+        int hotLeft = 0;
+        for (int hot = 0; hot < 100; hot++) {
+            if (cache.getIfPresent(hot) != null) hotLeft++;
+        }
+        assertTrue(hotLeft >= 95, "hot entries left: " + hotLeft);
+    }
+
+    @Test
+    @DisplayName("Should not cache a value loaded across an invalidation")
+    void testInvalidationDuringLoad() {
+        BoundedCache<String, String> cache = BoundedCache.ofSize(10);
+        cache.get("k", key -> {
+            cache.invalidate("k");
+            return "stale";
+        });
+        assertNull(cache.getIfPresent("k"));
+    }
+
+    @Test
+    @DisplayName("Should survive concurrent reads, writes and invalidations")
+    void testConcurrentUse() throws Exception {
+        BoundedCache<Integer, Integer> cache = BoundedCache.ofSize(64);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int t = 0; t < 16; t++) {
+                executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 20_000; i++) {
+                        int key = random.nextInt(256);
+                        switch (random.nextInt(10)) {
+                            case 0 -> cache.invalidate(key);
+                            case 1 -> cache.put(key, key);
+                            default -> assertEquals(key, cache.get(key, k -> k));
+                        }
+                    }
+                    return null;
+                }).get();
+            }
+        }
+        assertTrue(cache.stats().size() <= 64);
+    }
+}
@@ -0,0 +1,80 @@
+package com.file_exchange.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("FileContentCache tests")
+public class FileContentCacheTest {
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("content-cache");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    @DisplayName("Should serve a repeated read from an off-heap buffer without reloading")
+    void testHitServesCachedBuffer() throws IOException {
+        Path file = Files.writeString(dir.resolve("a.txt"), "hello");
+        FileContentCache cache = new FileContentCache(1024 * 1024);
+
+        FileContentCache.CachedFile first = cache.get(file);
+        Files.delete(file);
+        FileContentCache.CachedFile second = cache.get(file);
+
+        assertSame(first, second);
+        assertTrue(second.content().isDirect());
+        assertTrue(second.content().isReadOnly());
+        assertEquals("hello", read(second.content()));
+        assertEquals(1, cache.stats().hits());
+    }
+
+    @Test
+    @DisplayName("Should not cache files above the entry limit")
+    void testLargeFileNotCached() throws IOException {
+        Path file = Files.write(dir.resolve("big.bin"), new byte[(int) FileContentCache.MAX_ENTRY_BYTES + 1]);
+        FileContentCache cache = new FileContentCache(64L * 1024 * 1024);
+
+        assertNull(cache.get(file));
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    @DisplayName("Should reload a file after it is invalidated")
+    void testInvalidateAfterOverwrite() throws IOException {
+        Path file = Files.writeString(dir.resolve("b.txt"), "old");
+        FileContentCache cache = new FileContentCache(1024 * 1024);
+        cache.get(file);
+
+        Files.writeString(file, "new content");
+        cache.invalidate(file);
+
+        assertEquals("new content", read(cache.get(file).content()));
+    }
+
+    private static String read(ByteBuffer buffer) {
+        ByteBuffer copy = buffer.duplicate();
+        byte[] bytes = new byte[copy.remaining()];
+        copy.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
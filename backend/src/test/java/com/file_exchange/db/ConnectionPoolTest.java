@@ -0,0 +1,88 @@
+package com.file_exchange.db;
+
+import com.file_exchange.entity.File;
+import com.file_exchange.repository.FileRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ConnectionPool tests")
+public class ConnectionPoolTest {
+    private Path dir;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("pool-test");
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("test.db"), 4);
+        new DatabaseInitializer(pool).initialize();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        pool.close();
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Test
+    @DisplayName("Should open the database in WAL mode with read-only readers")
+    void testWalAndReadOnlyReaders() throws SQLException {
+        String mode = pool.write(conn -> {
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("PRAGMA journal_mode")) {
+                return rs.getString(1);
+            }
+        });
+        assertEquals("wal", mode);
+
+        assertThrows(SQLException.class, () -> pool.read(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                return stmt.executeUpdate("DELETE FROM files");
+            }
+        }));
+    }
+
+    @Test
+    @DisplayName("Should serve concurrent writes and reads from virtual threads without SQLITE_BUSY")
+    void testConcurrentAccess() throws Exception {
+        try (WriteBatcher batcher = new WriteBatcher(pool);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            FileRepository repository = new FileRepository(pool, batcher);
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                long userId = i % 5;
+                String name = "file-" + i;
+                tasks.add(executor.submit(() -> repository.saveFile(new File(null, userId, name, "uploads/" + name, 1L))));
+                tasks.add(executor.submit(() -> repository.getUserFiles(userId)));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+
+            int total = 0;
+            for (long userId = 0; userId < 5; userId++) {
+                total += repository.getUserFiles(userId).size();
+            }
+            assertEquals(200, total);
+        }
+    }
+}
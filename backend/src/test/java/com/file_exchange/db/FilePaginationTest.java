@@ -0,0 +1,115 @@
+package com.file_exchange.db;
+
+import com.file_exchange.dto.FilePage;
+import com.file_exchange.dto.FileSummary;
+import com.file_exchange.entity.File;
+import com.file_exchange.repository.FileRepository;
+import com.file_exchange.services.FileService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Keyset pagination tests")
+public class FilePaginationTest {
+    private Path dir;
+    private ConnectionPool pool;
+    private WriteBatcher batcher;
+    private FileService fileService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("page-test");
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("test.db"), 2);
+        new DatabaseInitializer(pool).initialize();
+        batcher = new WriteBatcher(pool);
+        FileRepository repository = new FileRepository(pool, batcher);
+        fileService = new FileService(repository, null, null, dir.resolve("uploads"));
+        for (int i = 0; i < 25; i++) {
+            // Sizes repeat so that ties have to be broken by id
+            repository.saveFileAsync(new File(null, 1L, "file-" + (char) ('a' + (i * 7) % 25), "p", i % 4));
+        }
+        repository.saveFile(new File(null, 2L, "other-user", "p", 1));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        batcher.close();
+        pool.close();
+        try (var files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should walk every file exactly once in name order")
+    void testPageByName() {
+        List<FileSummary> all = collect("name", "asc");
+        assertEquals(25, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).getFileName().compareTo(all.get(i).getFileName()) < 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Should break ties by id when paging by size, descending")
+    void testPageBySizeDescending() {
+        List<FileSummary> all = collect("size", "desc");
+        assertEquals(25, all.size());
+        List<FileSummary> expected = new ArrayList<>(all);
+        expected.sort(Comparator.comparingLong(FileSummary::getSize).thenComparingLong(FileSummary::getId).reversed());
+        assertEquals(expected.stream().map(FileSummary::getId).toList(), all.stream().map(FileSummary::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Should reject a cursor made for another sort")
+    void testCursorBoundToSort() {
+        FilePage first = fileService.getUserFilesPage(1L, "name", null, 10, null);
+        assertThrows(IllegalArgumentException.class,
+                () -> fileService.getUserFilesPage(1L, "size", null, 10, first.getNextCursor()));
+        assertThrows(IllegalArgumentException.class,
+                () -> fileService.getUserFilesPage(1L, "name", null, 10, "not a cursor"));
+    }
+
+    @Test
+    @DisplayName("Should answer a page from the covering index")
+    void testCoveringIndex() throws SQLException {
+        String plan = pool.read(conn -> {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN SELECT id, file_name, size FROM files "
+                         + "WHERE user_id = 1 AND (file_name, id) > ('file-c', 3) ORDER BY file_name, id LIMIT 11")) {
+                StringBuilder sb = new StringBuilder();
+                while (rs.next()) sb.append(rs.getString("detail")).append('\n');
+                return sb.toString();
+            }
+        });
+        assertTrue(plan.contains("COVERING INDEX idx_files_user_name"), plan);
+        assertFalse(plan.contains("TEMP B-TREE"), plan);
+    }
+
+    private List<FileSummary> collect(String sort, String order) {
+        List<FileSummary> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            FilePage page = fileService.getUserFilesPage(1L, sort, order, 10, cursor);
+            assertTrue(page.getItems().size() <= 10);
+            all.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return all;
+    }
+}
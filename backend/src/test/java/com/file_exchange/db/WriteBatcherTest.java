@@ -0,0 +1,83 @@
+package com.file_exchange.db;
+
+import com.file_exchange.entity.File;
+import com.file_exchange.repository.FileRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("WriteBatcher tests")
+public class WriteBatcherTest {
+    private Path dir;
+    private ConnectionPool pool;
+    private WriteBatcher batcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("batcher-test");
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("test.db"), 2);
+        new DatabaseInitializer(pool).initialize();
+        // A wide window so that everything submitted below lands in one transaction
+        batcher = new WriteBatcher(pool, 64, 200);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        batcher.close();
+        pool.close();
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Test
+    @DisplayName("Should complete every insert with its own generated id after commit")
+    void testGeneratedIds() {
+        FileRepository repository = new FileRepository(pool, batcher);
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(repository.saveFileAsync(new File(null, 1L, "f" + i, "uploads/1/f" + i, i)));
+        }
+
+        HashSet<Long> ids = new HashSet<>();
+        for (CompletableFuture<Long> future : futures) {
+            ids.add(future.join());
+        }
+        assertEquals(50, ids.size());
+        assertEquals(50, repository.getUserFiles(1L).size());
+    }
+
+    @Test
+    @DisplayName("Should fail only the statement that failed and commit the rest of its batch")
+    void testFailureIsolation() {
+        FileRepository repository = new FileRepository(pool, batcher);
+        CompletableFuture<Long> before = repository.saveFileAsync(new File(null, 2L, "a", "uploads/2/a", 1L));
+        CompletableFuture<Integer> broken = batcher.submit(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                return stmt.executeUpdate("INSERT INTO missing_table VALUES (1)");
+            }
+        });
+        CompletableFuture<Long> after = repository.saveFileAsync(new File(null, 2L, "b", "uploads/2/b", 1L));
+
+        assertNotNull(before.join());
+        assertNotNull(after.join());
+        assertThrows(CompletionException.class, broken::join);
+        assertEquals(2, repository.getUserFiles(2L).size());
+    }
+}
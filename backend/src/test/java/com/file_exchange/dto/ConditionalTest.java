@@ -0,0 +1,47 @@
+package com.file_exchange.dto;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Conditional tests")
+public class ConditionalTest {
+    private static final Instant MODIFIED = Instant.parse("2026-10-18T10:15:30.250Z");
+
+    @Test
+    @DisplayName("Should match If-None-Match weakly and prefer it over If-Modified-Since")
+    void testIfNoneMatch() {
+        assertTrue(Conditional.isNotModified("\"abc\"", null, "\"abc\"", null));
+        assertTrue(Conditional.isNotModified("W/\"abc\"", null, "\"abc\"", null));
+        assertTrue(Conditional.isNotModified("\"x\", \"abc\"", null, "\"abc\"", null));
+        assertTrue(Conditional.isNotModified("*", null, "\"abc\"", null));
+        assertFalse(Conditional.isNotModified("\"x\"", null, "\"abc\"", null));
+        // A stale tag wins over a date that would match
+        assertFalse(Conditional.isNotModified("\"x\"", "Sun, 18 Oct 2026 10:15:30 GMT", "\"abc\"", MODIFIED));
+    }
+
+    @Test
+    @DisplayName("Should compare If-Modified-Since at second precision")
+    void testIfModifiedSince() {
+        assertTrue(Conditional.isNotModified(null, "Sun, 18 Oct 2026 10:15:30 GMT", null, MODIFIED));
+        assertFalse(Conditional.isNotModified(null, "Sun, 18 Oct 2026 10:15:29 GMT", null, MODIFIED));
+        assertFalse(Conditional.isNotModified(null, "yesterday", null, MODIFIED));
+        assertFalse(Conditional.isNotModified(null, null, "\"abc\"", MODIFIED));
+    }
+
+    @Test
+    @DisplayName("Should not produce the body when the client copy is current")
+    void testBodyNotProduced() {
+        Conditional<String> current = Conditional.of("\"abc\"", null, "\"abc\"", null, () -> fail("body produced"));
+        assertTrue(current.isNotModified());
+        assertNull(current.getBody());
+
+        Conditional<String> changed = Conditional.of("\"old\"", null, "\"abc\"", null, () -> "body");
+        assertFalse(changed.isNotModified());
+        assertEquals("body", changed.getBody());
+        assertEquals("\"abc\"", changed.getETag());
+    }
+}
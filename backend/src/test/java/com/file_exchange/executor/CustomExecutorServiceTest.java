@@ -211,4 +211,84 @@ public class CustomExecutorServiceTest {
                         platformExecutor.submit((Callable<?>) null),
                 "Submitting null callable should throw NullPointerException");
     }
+
+    @Test
+    @Timeout(timeoutSeconds)
+    void testWorkStealingRunsNestedTasks() throws InterruptedException {
+        CustomExecutorService executor = CustomExecutorService.newWorkStealingPool(poolSize);
+        int parents = 50;
+        int children = 20;
+        CountDownLatch done = new CountDownLatch(parents * children);
+        AtomicInteger counter = new AtomicInteger(0);
+
+        // Children are pushed on the submitting worker's own deque and have to be stolen to spread out
+        for (int i = 0; i < parents; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < children; j++) {
+                    executor.execute(() -> {
+                        counter.incrementAndGet();
+                        done.countDown();
+                    });
+                }
+            });
+        }
+
+        assertTrue(done.await(timeoutSeconds, TimeUnit.SECONDS), "All tasks should complete");
+        assertEquals(parents * children, counter.get());
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS));
+        assertTrue(executor.isTerminated());
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+    }
+
+    @Test
+    @Timeout(timeoutSeconds)
+    void testWorkStealingShutdownNowReturnsQueuedTasks() throws InterruptedException {
+        CustomExecutorService executor = CustomExecutorService.builder()
+                .corePoolSize(1)
+                .workStealing(true)
+                .buildAndStart();
+        CountDownLatch running = new CountDownLatch(1);
+        executor.execute(() -> {
+            running.countDown();
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        assertTrue(running.await(timeoutSeconds, TimeUnit.SECONDS));
+        executor.execute(() -> {});
+        executor.execute(() -> {});
+
+        assertEquals(2, executor.shutdownNow().size());
+        assertTrue(executor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @Timeout(timeoutSeconds)
+    void testWorkStealingReportsPoolState() throws Exception {
+        CustomExecutorService executor = CustomExecutorService.newWorkStealingPool(poolSize);
+        assertTrue(executor.isStarted());
+        assertEquals(poolSize, executor.getPoolWorkers().size());
+        assertFalse(executor.getShutdown().get());
+
+        // Every worker has parked by now; with no park timeout only the submit can wake one
+        Thread.sleep(100);
+        assertEquals(42, executor.submit(() -> 42).get(1, TimeUnit.SECONDS));
+        assertTrue(executor.getWorkQueue().isEmpty());
+
+        executor.shutdown();
+        assertTrue(executor.getShutdown().get());
+        assertTrue(executor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS));
+        assertEquals(0, executor.getShutdownLatch().getCount());
+    }
+
+    @Test
+    void testWorkStealingRejectsWorkQueue() {
+        assertThrows(IllegalArgumentException.class, () -> CustomExecutorService.builder()
+                .workStealing(true)
+                .workQueue(new LinkedBlockingQueue<>())
+                .build());
+    }
 }
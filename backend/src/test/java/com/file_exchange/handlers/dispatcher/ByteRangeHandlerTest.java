@@ -0,0 +1,154 @@
+package com.file_exchange.handlers.dispatcher;
+
+import com.file_exchange.http.*;
+import com.file_exchange.storage.StorageCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ByteRangeHandler tests")
+public class ByteRangeHandlerTest {
+    private static final String CONTENT = "0123456789abcdefghij";
+
+    private final ByteRangeHandler handler = new ByteRangeHandler();
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("range-test", ".txt");
+        Files.writeString(file, CONTENT);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    @DisplayName("Should parse closed, open and suffix ranges")
+    void testParseRanges() {
+        assertArrayEquals(new long[]{0, 4}, ByteRangeHandler.parseRanges("bytes=0-4", 20).get(0));
+        assertArrayEquals(new long[]{15, 19}, ByteRangeHandler.parseRanges("bytes=15-", 20).get(0));
+        assertArrayEquals(new long[]{17, 19}, ByteRangeHandler.parseRanges("bytes=-3", 20).get(0));
+        assertArrayEquals(new long[]{10, 19}, ByteRangeHandler.parseRanges("bytes=10-99", 20).get(0));
+    }
+
+    @Test
+    @DisplayName("Should coalesce overlapping ranges and ignore invalid headers")
+    void testCoalesceAndInvalid() {
+        List<long[]> ranges = ByteRangeHandler.parseRanges("bytes=5-9,0-2,8-12", 20);
+        assertEquals(2, ranges.size());
+        assertArrayEquals(new long[]{0, 2}, ranges.get(0));
+        assertArrayEquals(new long[]{5, 12}, ranges.get(1));
+
+        assertNull(ByteRangeHandler.parseRanges("items=0-4", 20));
+        assertNull(ByteRangeHandler.parseRanges("bytes=5-3", 20));
+        assertTrue(ByteRangeHandler.parseRanges("bytes=30-40", 20).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should answer a single range with 206 and the requested slice")
+    void testSingleRange() throws IOException {
+        HttpResponse response = handler.apply(request("bytes=2-5", null), fileResponse());
+
+        assertEquals(206, response.getStatusCode());
+        assertEquals("bytes 2-5/20", response.getHeaders().get("Content-Range"));
+        assertEquals("2345", write(response.getStreamingBody()));
+    }
+
+    @Test
+    @DisplayName("Should build multipart/byteranges with an exact Content-Length")
+    void testMultiRange() throws IOException {
+        HttpResponse response = handler.apply(request("bytes=0-1,-2", null), fileResponse());
+
+        assertEquals(206, response.getStatusCode());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="));
+        String body = write(response.getStreamingBody());
+        assertEquals(response.getContentLength(), body.getBytes(StandardCharsets.US_ASCII).length);
+        assertTrue(body.contains("Content-Range: bytes 0-1/20\r\n\r\n01"));
+        assertTrue(body.contains("Content-Range: bytes 18-19/20\r\n\r\nij"));
+    }
+
+    @Test
+    @DisplayName("Should return 416 for unsatisfiable ranges and 200 when If-Range does not match")
+    void testUnsatisfiableAndIfRange() {
+        assertEquals(416, handler.apply(request("bytes=50-60", null), fileResponse()).getStatusCode());
+        assertEquals(200, handler.apply(request("bytes=0-1", "\"other\""), fileResponse()).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should serve a single range of a compressed file in decoded bytes")
+    void testCompressedRange() throws IOException {
+        Path stored = Files.createTempFile("range-test", ".gzip");
+        try {
+            try (OutputStream out = StorageCodec.encode(Files.newOutputStream(stored), StorageCodec.GZIP)) {
+                out.write(CONTENT.getBytes(StandardCharsets.US_ASCII));
+            }
+            HttpResponse response = handler.apply(request("bytes=10-14", null), compressedResponse(stored));
+            assertEquals(206, response.getStatusCode());
+            assertEquals("bytes 10-14/20", response.getHeaders().get("Content-Range"));
+            assertEquals("abcde", write(response.getStreamingBody()));
+
+            // Several ranges would decode the file once each: the full file is sent instead
+            assertEquals(200, handler.apply(request("bytes=0-1,-2", null), compressedResponse(stored)).getStatusCode());
+        } finally {
+            Files.deleteIfExists(stored);
+        }
+    }
+
+    private HttpResponse compressedResponse(Path stored) {
+        return HttpResponse.ok(new CompressedFileBody(stored, CONTENT.length(), StorageCodec.GZIP), "text/plain",
+                new HashMap<>());
+    }
+
+    private HttpRequest request(String range, String ifRange) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("range", range);
+        if (ifRange != null) headers.put("if-range", ifRange);
+        return new HttpRequest("GET", "/api/v1/files/download", headers, "", null, new HashMap<>());
+    }
+
+    private HttpResponse fileResponse() {
+        return HttpResponse.ok(new FileRegionBody(file, 0, CONTENT.length()), "text/plain", new HashMap<>());
+    }
+
+    private String write(StreamingBody body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(new ResponseSink() {
+            @Override
+            public OutputStream stream() {
+                return out;
+            }
+
+            @Override
+            public void transferFrom(FileChannel channel, long position, long count) throws IOException {
+                ByteBuffer buffer = ByteBuffer.allocate((int) count);
+                channel.read(buffer, position);
+                out.write(buffer.array());
+            }
+
+            @Override
+            public void write(ByteBuffer buffer) {
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                out.writeBytes(bytes);
+            }
+        });
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,141 @@
+package com.file_exchange.handlers.dispatcher;
+
+import com.file_exchange.handlers.utilsFiles.StreamingPart;
+import com.file_exchange.http.HttpRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("HttpRequestParser tests")
+public class HttpRequestParserTest {
+    @TempDir
+    Path stagingDir;
+    private HttpRequestParser parser;
+
+    @BeforeEach
+    void setUp() {
+        parser = new HttpRequestParser(stagingDir);
+    }
+
+    @Test
+    @DisplayName("Should parse request line, query and headers")
+    void testParseHead() throws IOException {
+        ConnectionInput in = input("get /api/v1/files/download?fileId=7 HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "AUTHORIZATION:   Bearer abc  \r\n"
+                + "X-Custom-Header: value\r\n\r\n");
+
+        HttpRequest request = parser.parse(in);
+
+        assertEquals("GET", request.getMethod());
+        assertEquals("/api/v1/files/download", request.getPath());
+        assertEquals("7", request.getQueryParams().get("fileId"));
+        assertEquals("Bearer abc", request.getHeaders().get("authorization"));
+        assertEquals("value", request.getHeaders().get("x-custom-header"));
+    }
+
+    @Test
+    @DisplayName("Should keep pipelined bytes for the next request on the connection")
+    void testPipelinedRequests() throws IOException {
+        ConnectionInput in = input("POST /a HTTP/1.1\r\nContent-Length: 5\r\nContent-Type: application/json\r\n\r\nhello"
+                + "GET /b HTTP/1.1\r\nHost: x\r\n\r\n");
+
+        HttpRequest first = parser.parse(in);
+        assertEquals("/a", first.getPath());
+        assertEquals("hello", first.getBody());
+
+        assertTrue(in.hasBufferedHead());
+        HttpRequest second = parser.parse(in);
+        assertEquals("GET", second.getMethod());
+        assertEquals("/b", second.getPath());
+
+        assertNull(parser.parse(in));
+    }
+
+    @Test
+    @DisplayName("Should read and drop the body of a GET instead of parsing it as another request")
+    void testBodyOfMethodWithoutBody() throws IOException {
+        String smuggled = "DELETE /api/v1/files?fileId=1 HTTP/1.1\r\nHost: x\r\n\r\n";
+        ConnectionInput in = input("GET /a HTTP/1.1\r\nContent-Length: " + smuggled.length() + "\r\n\r\n" + smuggled
+                + "GET /b HTTP/1.1\r\nHost: x\r\n\r\n");
+
+        HttpRequest first = parser.parse(in);
+        assertEquals("/a", first.getPath());
+        assertEquals("", first.getBody());
+
+        HttpRequest second = parser.parse(in);
+        assertEquals("GET", second.getMethod());
+        assertEquals("/b", second.getPath());
+        assertNull(parser.parse(in));
+    }
+
+    @Test
+    @DisplayName("Should leave a chunked body unread and unframed, even with a Content-Length")
+    void testChunkedBodyIsNotFramed() throws IOException {
+        ConnectionInput in = input("POST /a HTTP/1.1\r\nTransfer-Encoding: chunked\r\nContent-Length: 5\r\n"
+                + "Content-Type: application/json\r\n\r\n5\r\nhello\r\n0\r\n\r\n");
+
+        HttpRequest request = parser.parse(in);
+
+        assertEquals("chunked", request.getHeaders().get("transfer-encoding"));
+        assertEquals("", request.getBody());
+        assertNull(request.getUnreadBody());
+    }
+
+    @Test
+    @DisplayName("Should assemble a head that arrives in small pieces")
+    void testFragmentedHead() throws IOException {
+        byte[] bytes = "GET /slow HTTP/1.1\r\nHost: x\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+        InputStream trickle = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 3));
+            }
+        };
+
+        HttpRequest request = parser.parse(new ConnectionInput(trickle));
+
+        assertEquals("/slow", request.getPath());
+        assertEquals("x", request.getHeaders().get("host"));
+    }
+
+    @Test
+    @DisplayName("Should leave a multipart body unread until a handler pulls the part")
+    void testLazyMultipart() throws IOException {
+        String body = "--XYZ\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"a.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + "file content\r\n"
+                + "--XYZ--\r\n";
+        ConnectionInput in = input("POST /upload HTTP/1.1\r\n"
+                + "Content-Type: multipart/form-data; boundary=XYZ\r\n"
+                + "Content-Length: " + body.length() + "\r\n\r\n"
+                + body
+                + "GET /next HTTP/1.1\r\nHost: x\r\n\r\n");
+
+        HttpRequest request = parser.parse(in);
+        assertNotNull(request.getMultipart());
+        assertTrue(in.available() >= body.length());
+
+        StreamingPart part = request.getPartAsStreamingPart("file");
+        assertEquals("a.txt", part.getOriginalFileName());
+        assertEquals("file content", new String(part.readAllBytes(), StandardCharsets.UTF_8));
+
+        // The closing boundary is still unread; finishing the body lines the connection up on the next request
+        assertTrue(request.finishBody());
+        assertEquals("/next", parser.parse(in).getPath());
+    }
+
+    private ConnectionInput input(String raw) {
+        return new ConnectionInput(new ByteArrayInputStream(raw.getBytes(StandardCharsets.UTF_8)));
+    }
+}
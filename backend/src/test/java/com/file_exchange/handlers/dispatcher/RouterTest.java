@@ -0,0 +1,86 @@
+package com.file_exchange.handlers.dispatcher;
+
+import com.file_exchange.handlers.HandlerMethod;
+import com.file_exchange.handlers.HandlerParameter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Router tests")
+public class RouterTest {
+    private Router router;
+
+    @BeforeEach
+    void setUp() {
+        router = new Router();
+        router.addRoute(route("GET", "/api/v1/files/download"));
+        router.addRoute(route("GET", "/api/v1/files/{id}",
+                new HandlerParameter(HandlerParameter.Source.PATH_VARIABLE, "id", Long.class)));
+        router.addRoute(route("GET", "/api/v1/files/{name}/meta",
+                new HandlerParameter(HandlerParameter.Source.PATH_VARIABLE, "name", String.class)));
+        router.addRoute(route("DELETE", "/api/v1/files/{id}",
+                new HandlerParameter(HandlerParameter.Source.PATH_VARIABLE, "id", Long.class)));
+        router.addRoute(route("POST", "/api/v1/files/upload"));
+    }
+
+    @Test
+    @DisplayName("Should prefer static segments over path variables")
+    void testStaticOverVariable() {
+        Router.RouteMatch match = router.findHandler("GET", "/api/v1/files/download?fileId=1");
+        assertEquals("/api/v1/files/download", match.handler().getPath());
+        assertEquals(0, match.pathVariables().length);
+    }
+
+    @Test
+    @DisplayName("Should capture typed path variables and reject segments of the wrong type")
+    void testTypedCapture() {
+        Router.RouteMatch match = router.findHandler("GET", "/api/v1/files/42");
+        assertEquals("/api/v1/files/{id}", match.handler().getPath());
+        assertArrayEquals(new String[]{"42"}, match.pathVariables());
+
+        assertNull(router.findHandler("GET", "/api/v1/files/abc"));
+        assertEquals("abc", router.findHandler("GET", "/api/v1/files/abc/meta").pathVariables()[0]);
+    }
+
+    @Test
+    @DisplayName("Should backtrack from a dead-end static branch to a variable")
+    void testBacktracking() {
+        Router.RouteMatch match = router.findHandler("GET", "/api/v1/files/download/meta");
+        assertEquals("/api/v1/files/{name}/meta", match.handler().getPath());
+        assertArrayEquals(new String[]{"download"}, match.pathVariables());
+    }
+
+    @Test
+    @DisplayName("Should ignore a trailing slash")
+    void testTrailingSlash() {
+        assertNotNull(router.findHandler("GET", "/api/v1/files/download/"));
+        assertNull(router.findHandler("GET", "/api/v1/files/"));
+    }
+
+    @Test
+    @DisplayName("Should report the methods allowed on a known path")
+    void testAllowedMethods() {
+        assertNull(router.findHandler("PUT", "/api/v1/files/7"));
+        assertEquals(Set.of("DELETE", "GET", "HEAD"), router.allowedMethods("/api/v1/files/7"));
+        assertEquals(Set.of("POST"), router.allowedMethods("/api/v1/files/upload"));
+        assertTrue(router.allowedMethods("/api/v1/unknown").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should answer HEAD with the GET route unless the path has its own HEAD route")
+    void testHeadFallsBackToGet() {
+        assertEquals("GET", router.findHandler("HEAD", "/api/v1/files/42").handler().getHttpMethod());
+        assertNull(router.findHandler("HEAD", "/api/v1/files/upload"));
+
+        router.addRoute(route("HEAD", "/api/v1/files/download"));
+        assertEquals("HEAD", router.findHandler("HEAD", "/api/v1/files/download").handler().getHttpMethod());
+    }
+
+    private static HandlerMethod route(String method, String path, HandlerParameter... parameters) {
+        return new HandlerMethod(null, path, method, "handler", parameters, args -> null);
+    }
+}
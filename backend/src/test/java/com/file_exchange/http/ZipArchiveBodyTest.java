@@ -0,0 +1,87 @@
+package com.file_exchange.http;
+
+import com.file_exchange.dto.FileDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ZipArchiveBody tests")
+public class ZipArchiveBodyTest {
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("zip-body");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    @DisplayName("Should stream a readable archive with unique entry names")
+    void testArchive() throws IOException {
+        String text = "hello ".repeat(1000);
+        Path first = Files.writeString(dir.resolve("a"), text);
+        Path second = Files.writeString(dir.resolve("b"), "second");
+        Path image = Files.write(dir.resolve("c"), new byte[]{1, 2, 3, 4});
+        ZipArchiveBody body = new ZipArchiveBody(List.of(
+                new FileDto("notes.txt", "text/plain", first, text.length(), null),
+                new FileDto("notes.txt", "text/plain", second, 6, null),
+                new FileDto("photo.jpg", "image/jpeg", image, 4, null)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(new StreamSink(out));
+        assertEquals(-1, body.contentLength());
+        // Plain text is deflated, so the archive is much smaller than its content
+        assertTrue(out.size() < text.length());
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry = zip.getNextEntry();
+            assertEquals("notes.txt", entry.getName());
+            assertEquals(text, new String(zip.readAllBytes()));
+            assertEquals("notes (1).txt", zip.getNextEntry().getName());
+            assertEquals("second", new String(zip.readAllBytes()));
+            assertEquals("photo.jpg", zip.getNextEntry().getName());
+            assertArrayEquals(new byte[]{1, 2, 3, 4}, zip.readAllBytes());
+            assertNull(zip.getNextEntry());
+        }
+    }
+
+    private record StreamSink(OutputStream out) implements ResponseSink {
+        @Override
+        public OutputStream stream() {
+            return out;
+        }
+
+        @Override
+        public void transferFrom(FileChannel file, long position, long count) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void write(ByteBuffer buffer) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.file_exchange.repository;
+
+import com.file_exchange.db.ConnectionPool;
+import com.file_exchange.db.DatabaseInitializer;
+import com.file_exchange.db.WriteBatcher;
+import com.file_exchange.entity.File;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CachingFileRepository tests")
+public class CachingFileRepositoryTest {
+    private Path dir;
+    private ConnectionPool pool;
+    private WriteBatcher batcher;
+    private CachingFileRepository repository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("cache-repo-test");
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("test.db"), 2);
+        new DatabaseInitializer(pool).initialize();
+        batcher = new WriteBatcher(pool);
+        repository = new CachingFileRepository(pool, batcher, 1024 * 1024);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        batcher.close();
+        pool.close();
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Test
+    @DisplayName("Should serve repeated lookups from the cache")
+    void testRepeatedLookups() {
+        Long id = repository.saveFile(new File(null, 1L, "a.txt", "uploads/1/a.txt", 10));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("a.txt", repository.getFileById(id, 1L).getFileName());
+        }
+        assertNull(repository.getFileById(id, 2L));
+
+        assertEquals(4, repository.metadataCacheStats().hits());
+        assertEquals(2, repository.metadataCacheStats().misses());
+    }
+
+    @Test
+    @DisplayName("Should forget a file once it is deleted")
+    void testDeleteInvalidates() {
+        Long id = repository.saveFile(new File(null, 1L, "b.txt", "uploads/1/b.txt", 10));
+        assertNotNull(repository.getFileById(id, 1L));
+
+        repository.deleteFile(id, 1L);
+
+        assertNull(repository.getFileById(id, 1L));
+    }
+
+    @Test
+    @DisplayName("Should hand out copies that cannot change the cached entry")
+    void testDefensiveCopy() {
+        Long id = repository.saveFile(new File(null, 1L, "c.txt", "uploads/1/c.txt", 10));
+        repository.getFileById(id, 1L).setFilePath("/etc/passwd");
+
+        assertEquals("uploads/1/c.txt", repository.getFileById(id, 1L).getFilePath());
+    }
+
+    @Test
+    @DisplayName("Should count blob references and drop the blob row with the last one")
+    void testBlobReferenceCounting() {
+        Long first = repository.saveFile(new File(null, 1L, "a.txt", "uploads/blobs/ab/cd/abcd", 10, "abcd"));
+        Long second = repository.saveFile(new File(null, 2L, "b.txt", "uploads/blobs/ab/cd/abcd", 10, "abcd"));
+        assertEquals(2, repository.getBlobReferences("abcd"));
+        assertEquals("abcd", repository.getFileById(first, 1L).getContentHash());
+
+        repository.deleteFile(first, 1L);
+        assertEquals(1, repository.getBlobReferences("abcd"));
+        // Deleting a row of another user changes nothing
+        repository.deleteFile(second, 1L);
+        assertEquals(1, repository.getBlobReferences("abcd"));
+
+        repository.deleteFile(second, 2L);
+        assertEquals(0, repository.getBlobReferences("abcd"));
+    }
+}
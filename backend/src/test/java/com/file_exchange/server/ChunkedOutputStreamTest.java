@@ -0,0 +1,65 @@
+package com.file_exchange.server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ChunkedOutputStream tests")
+public class ChunkedOutputStreamTest {
+
+    @Test
+    @DisplayName("Should frame buffered writes as one chunk and end with a zero-size chunk")
+    void testSmallBody() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChunkedOutputStream chunks = new ChunkedOutputStream(out);
+        chunks.write("[1,".getBytes(StandardCharsets.US_ASCII));
+        chunks.write('2');
+        chunks.write("]".getBytes(StandardCharsets.US_ASCII));
+        chunks.finish();
+        chunks.close();
+
+        assertEquals("5\r\n[1,2]\r\n0\r\n\r\n", out.toString(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    @DisplayName("Should split large bodies into chunks that decode back to the original bytes")
+    void testLargeBody() throws IOException {
+        byte[] body = "0123456789".repeat(3000).getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChunkedOutputStream chunks = new ChunkedOutputStream(out);
+        for (int off = 0; off < body.length; off += 1000) {
+            chunks.write(body, off, Math.min(1000, body.length - off));
+        }
+        chunks.flush();
+        chunks.write(body, 0, 0);
+        chunks.finish();
+
+        assertArrayEquals(body, decode(out.toByteArray()));
+    }
+
+    private static byte[] decode(byte[] framed) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int pos = 0;
+        while (true) {
+            int lineEnd = pos;
+            while (framed[lineEnd] != '\r') lineEnd++;
+            int size = Integer.parseInt(new String(framed, pos, lineEnd - pos, StandardCharsets.US_ASCII), 16);
+            pos = lineEnd + 2;
+            if (size == 0) {
+                assertEquals(pos + 2, framed.length);
+                return body.toByteArray();
+            }
+            assertTrue(size <= 8192);
+            body.write(framed, pos, size);
+            pos += size;
+            assertEquals('\r', framed[pos]);
+            assertEquals('\n', framed[pos + 1]);
+            pos += 2;
+        }
+    }
+}
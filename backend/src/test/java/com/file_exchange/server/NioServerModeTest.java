@@ -0,0 +1,175 @@
+package com.file_exchange.server;
+
+import com.file_exchange.annotations.CustomGetMapping;
+import com.file_exchange.annotations.CustomRequestMapping;
+import com.file_exchange.annotations.CustomRestController;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CustomWebServer NIO mode tests")
+public class NioServerModeTest {
+    private static final int POOL_SIZE = 2;
+
+    private CustomWebServer server;
+    @TempDir
+    Path stagingDir;
+    private int port;
+
+    @CustomRestController
+    @CustomRequestMapping("/test")
+    public static class PingController {
+        @CustomGetMapping("/ping")
+        public String ping() {
+            return "pong";
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        server = new CustomWebServer(port, POOL_SIZE, false, ServerMode.NIO, stagingDir);
+        server.registerController(new PingController());
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("Should serve several requests on one keep-alive connection")
+    void testKeepAlive() throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(ping(socket).endsWith("pong"));
+            }
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("Should answer pipelined requests sent in one write")
+    void testPipelining() throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            String request = "GET /test/ping HTTP/1.1\r\nHost: localhost\r\n\r\n";
+            socket.getOutputStream().write((request + request).getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+
+            assertTrue(readResponse(socket).endsWith("pong"));
+            assertTrue(readResponse(socket).endsWith("pong"));
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("Idle keep-alive connections should not block new clients")
+    void testIdleConnectionsDoNotHoldWorkers() throws IOException {
+        List<Socket> idle = new ArrayList<>();
+        try {
+            // More idle keep-alive clients than there are workers
+            for (int i = 0; i < POOL_SIZE * 3; i++) {
+                Socket socket = new Socket("localhost", port);
+                ping(socket);
+                idle.add(socket);
+            }
+
+            try (Socket fresh = new Socket("localhost", port)) {
+                assertTrue(ping(fresh).endsWith("pong"));
+            }
+        } finally {
+            for (Socket socket : idle) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("Should answer HEAD on a GET route with its headers only")
+    void testHead() throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.getOutputStream().write(
+                    "HEAD /test/ping HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+            InputStream in = socket.getInputStream();
+            assertEquals("HTTP/1.1 200 OK", readLine(in));
+            String line;
+            boolean length = false;
+            while (!(line = readLine(in)).isEmpty()) {
+                length |= line.equals("Content-Length: 4");
+            }
+            assertTrue(length);
+
+            // No body followed the headers: the next response on the connection starts right away
+            assertTrue(ping(socket).endsWith("pong"));
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("Should answer a chunked request body with 411 and close the connection")
+    void testChunkedRequestRejected() throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.getOutputStream().write(("GET /test/ping HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+                    + "2e\r\nGET /test/ping HTTP/1.1\r\nHost: localhost\r\n\r\n\r\n0\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+            InputStream in = socket.getInputStream();
+            assertEquals("HTTP/1.1 411 Length Required", readLine(in));
+            while (!readLine(in).isEmpty()) {
+                // headers
+            }
+            in.readNBytes("Request bodies must be sent with Content-Length".length());
+            assertEquals(-1, in.read());
+        }
+    }
+
+    private String ping(Socket socket) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(("GET /test/ping HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        return readResponse(socket);
+    }
+
+    private String readResponse(Socket socket) throws IOException {
+        InputStream in = socket.getInputStream();
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int contentLength = 0;
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            head.write(line.getBytes(StandardCharsets.US_ASCII));
+            if (line.toLowerCase().startsWith("content-length:")) {
+                contentLength = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        assertTrue(head.toString(StandardCharsets.US_ASCII).startsWith("HTTP/1.1 200"));
+        return new String(in.readNBytes(contentLength), StandardCharsets.UTF_8);
+    }
+
+    private String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (b != '\r') sb.append((char) b);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,142 @@
+package com.file_exchange.server;
+
+import com.file_exchange.annotations.CustomGetMapping;
+import com.file_exchange.annotations.CustomRequestMapping;
+import com.file_exchange.annotations.CustomRestController;
+import com.file_exchange.http.HttpResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Response compression tests")
+public class ResponseCompressionTest {
+    private static final String TEXT = "compressible text ".repeat(200);
+
+    private CustomWebServer server;
+    @TempDir
+    Path stagingDir;
+    private int port;
+
+    @CustomRestController
+    @CustomRequestMapping("/test")
+    public static class TextController {
+        @CustomGetMapping("/text")
+        public String text() {
+            return TEXT;
+        }
+
+        @CustomGetMapping("/binary")
+        public byte[] binary() {
+            return TEXT.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        server = new CustomWebServer(port, 2, false, ServerMode.NIO, stagingDir);
+        server.registerController(new TextController());
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    @DisplayName("Should pick the preferred coding the client accepts")
+    void testNegotiate() {
+        assertEquals("gzip", ResponseCompression.negotiate("gzip, deflate, br"));
+        assertEquals("deflate", ResponseCompression.negotiate("deflate"));
+        assertEquals("deflate", ResponseCompression.negotiate("gzip;q=0.5, deflate"));
+        assertEquals("deflate", ResponseCompression.negotiate("gzip;q=0, *"));
+        assertNull(ResponseCompression.negotiate("br"));
+        assertNull(ResponseCompression.negotiate("identity, *;q=0"));
+        assertNull(ResponseCompression.negotiate(null));
+    }
+
+    @Test
+    @DisplayName("Should only compress large responses of compressible types")
+    void testIsCompressible() {
+        assertTrue(ResponseCompression.isCompressible(HttpResponse.ok(new byte[2048], "application/json")));
+        assertFalse(ResponseCompression.isCompressible(HttpResponse.ok(new byte[100], "application/json")));
+        assertFalse(ResponseCompression.isCompressible(HttpResponse.ok(new byte[2048], "image/jpeg")));
+        assertFalse(ResponseCompression.isCompressible(HttpResponse.ok(new byte[2048], "application/zip")));
+        assertFalse(ResponseCompression.isCompressible(HttpResponse.badRequest("x".repeat(2048))));
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("Should gzip a text response for a client that accepts it")
+    void testGzipResponse() throws IOException {
+        byte[] response = get("/test/text", "gzip");
+        String head = headers(response);
+        assertTrue(head.contains("Content-Encoding: gzip"));
+        assertTrue(head.contains("Transfer-Encoding: chunked"));
+        assertTrue(head.contains("Vary: Accept-Encoding"));
+
+        byte[] body = dechunk(new ByteArrayInputStream(response, head.length(), response.length - head.length()));
+        assertTrue(body.length < TEXT.length());
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals(TEXT, new String(gzip.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("Should send identity bodies to other clients and for compressed types")
+    void testIdentityResponse() throws IOException {
+        String plain = headers(get("/test/text", null));
+        assertFalse(plain.contains("Content-Encoding"));
+        assertTrue(plain.contains("Content-Length: " + TEXT.length()));
+
+        String binary = headers(get("/test/binary", "gzip"));
+        assertFalse(binary.contains("Content-Encoding"));
+        assertFalse(binary.contains("Vary"));
+    }
+
+    private byte[] get(String path, String acceptEncoding) throws IOException {
+        try (Socket socket = new Socket("localhost", port)) {
+            String request = "GET " + path + " HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n"
+                    + (acceptEncoding != null ? "Accept-Encoding: " + acceptEncoding + "\r\n" : "") + "\r\n";
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+            return socket.getInputStream().readAllBytes();
+        }
+    }
+
+    private static String headers(byte[] response) {
+        String text = new String(response, StandardCharsets.ISO_8859_1);
+        return text.substring(0, text.indexOf("\r\n\r\n") + 4);
+    }
+
+    private static byte[] dechunk(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        while (true) {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != '\n') {
+                if (c != '\r') line.append((char) c);
+            }
+            int size = Integer.parseInt(line.toString().trim(), 16);
+            if (size == 0) return body.toByteArray();
+            body.write(in.readNBytes(size));
+            in.skipNBytes(2);
+        }
+    }
+}
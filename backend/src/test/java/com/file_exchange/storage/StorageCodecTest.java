@@ -0,0 +1,69 @@
+package com.file_exchange.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("StorageCodec tests")
+public class StorageCodecTest {
+    private final StorageCodec codec = new StorageCodec(0.8);
+
+    @Test
+    @DisplayName("Should compress text and leave incompressible or small content alone")
+    void testChoose() {
+        byte[] csv = "id,name,size\n1,report.pdf,1048576\n".repeat(500).getBytes(StandardCharsets.UTF_8);
+        assertEquals(StorageCodec.GZIP, codec.choose("data.csv", csv, csv.length));
+        // The name says it is compressed already, whatever the bytes look like
+        assertNull(codec.choose("data.zip", csv, csv.length));
+        assertNull(codec.choose("data.csv", csv, 100));
+
+        byte[] random = new byte[16384];
+        new Random(1).nextBytes(random);
+        assertNull(codec.choose("data.bin", random, random.length));
+
+        // Sniffed from the content when the name does not tell
+        byte[] png = csv.clone();
+        System.arraycopy(new byte[]{(byte) 0x89, 'P', 'N', 'G'}, 0, png, 0, 4);
+        assertNull(codec.choose("upload", png, png.length));
+    }
+
+    @Test
+    @DisplayName("Should not compress a file on disk above the restage size")
+    void testChooseForFile() throws IOException {
+        Path file = Files.createTempFile("storage-codec", ".csv");
+        try {
+            Files.writeString(file, "id,name,size\n1,report.pdf,1048576\n".repeat(500));
+            assertEquals(StorageCodec.GZIP, codec.choose("data.csv", file));
+            assertNull(new StorageCodec(0.8, Files.size(file) - 1).choose("data.csv", file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Should read back what was written through the codec")
+    void testRoundTrip() throws IOException {
+        Path file = Files.createTempFile("storage-codec", ".gzip");
+        try {
+            String text = "line of text\n".repeat(1000);
+            try (OutputStream out = StorageCodec.encode(Files.newOutputStream(file), StorageCodec.GZIP)) {
+                out.write(text.getBytes(StandardCharsets.UTF_8));
+            }
+            ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+            StorageCodec.open(file, StorageCodec.GZIP).transferTo(decoded);
+            assertEquals(text, decoded.toString(StandardCharsets.UTF_8));
+            assertThrows(IllegalArgumentException.class, () -> StorageCodec.open(file, "lz4"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
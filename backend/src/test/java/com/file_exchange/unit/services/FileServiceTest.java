@@ -1,8 +1,14 @@
 package com.file_exchange.unit.services;
 
+import com.file_exchange.dto.Conditional;
+import com.file_exchange.dto.FileArchiveDto;
+import com.file_exchange.dto.FileDto;
 import com.file_exchange.entity.File;
+import com.file_exchange.handlers.utilsFiles.TempFileInputStream;
 import com.file_exchange.repository.FileRepository;
 import com.file_exchange.services.FileService;
+import com.file_exchange.storage.BlobStore;
+import com.file_exchange.storage.StorageCodec;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -10,8 +16,10 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -20,6 +28,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
 import java.util.List;
 
 @DisplayName("FileService tests")
@@ -34,8 +44,8 @@ public class FileServiceTest {
     @BeforeEach
     void setUp() throws IOException {
         MockitoAnnotations.openMocks(this);
-        fileService = new FileService(fileRepository);
         tempDir = Files.createTempDirectory("test-uploads");
+        fileService = new FileService(fileRepository, null, null, tempDir.resolve("uploads"));
     }
 
     @AfterEach
@@ -82,6 +92,163 @@ public class FileServiceTest {
         });
     }
 
+    @Test
+    @DisplayName("Should move a staged upload into the blob store instead of copying it")
+    void testUploadMovesStagedFile() throws IOException {
+        Path staged = Files.createTempFile(tempDir, "upload-", ".tmp");
+        Files.writeString(staged, "staged content");
+        String hash = BlobStore.hash(staged);
+
+        when(fileRepository.saveFile(any(File.class))).thenReturn(101L);
+
+        Long fileId = fileService.uploadFile(2L, new TempFileInputStream(staged, "staged.txt", 14L), "staged.txt", 14L);
+
+        Path target = tempDir.resolve(Path.of("uploads", "blobs", hash.substring(0, 2), hash.substring(2, 4), hash));
+        assertEquals(101L, fileId);
+        assertFalse(Files.exists(staged));
+        assertEquals("staged content", Files.readString(target));
+        Files.deleteIfExists(target);
+    }
+
+    @Test
+    @DisplayName("Should store identical uploads once and reference the same blob")
+    void testDuplicateUploadSharesBlob() throws IOException {
+        when(fileRepository.saveFile(any(File.class))).thenReturn(1L, 2L);
+
+        fileService.uploadFile(1L, new ByteArrayInputStream("same bytes".getBytes()), "a.txt", -1);
+        Path duplicate = Files.createTempFile(tempDir, "upload-", ".tmp");
+        Files.writeString(duplicate, "same bytes");
+        fileService.uploadFile(2L, new TempFileInputStream(duplicate, "b.txt", 10L), "b.txt", 10L);
+
+        ArgumentCaptor<File> saved = ArgumentCaptor.forClass(File.class);
+        verify(fileRepository, times(2)).saveFile(saved.capture());
+        File first = saved.getAllValues().get(0);
+        File second = saved.getAllValues().get(1);
+        assertEquals(first.getContentHash(), second.getContentHash());
+        assertEquals(first.getFilePath(), second.getFilePath());
+        assertEquals(10L, second.getSize());
+        // The duplicate's staging file is dropped, not stored
+        assertFalse(Files.exists(duplicate));
+
+        Path blob = Path.of(first.getFilePath());
+        assertEquals("same bytes", Files.readString(blob));
+
+        // The blob outlives a delete while another file still references it
+        when(fileRepository.getFileById(1L, 1L)).thenReturn(first);
+        when(fileRepository.getBlobReferences(first.getContentHash())).thenReturn(1L);
+        fileService.deleteFile(1L, 1L);
+        assertTrue(Files.exists(blob));
+
+        when(fileRepository.getFileById(2L, 2L)).thenReturn(second);
+        when(fileRepository.getBlobReferences(first.getContentHash())).thenReturn(0L);
+        fileService.deleteFile(2L, 2L);
+        assertFalse(Files.exists(blob));
+    }
+
+    @Test
+    @DisplayName("Should store compressible uploads gzipped and keep one form per content")
+    void testCompressedUpload() throws IOException {
+        FileService compressing = new FileService(fileRepository, null, new StorageCodec(0.8),
+                tempDir.resolve("uploads"));
+        String text = "2026-10-18 12:00:00 INFO request served\n".repeat(1000);
+        when(fileRepository.saveFile(any(File.class))).thenReturn(1L, 2L);
+
+        compressing.uploadFile(1L, new ByteArrayInputStream(text.getBytes()), "app.log", -1);
+        // Staged without a codec, the same content is not stored a second time in plain form
+        Path staged = Files.createTempFile(tempDir, "upload-", ".tmp");
+        Files.writeString(staged, text);
+        compressing.uploadFile(2L, new TempFileInputStream(staged, "copy.log", text.length()), "copy.log", text.length());
+
+        ArgumentCaptor<File> saved = ArgumentCaptor.forClass(File.class);
+        verify(fileRepository, times(2)).saveFile(saved.capture());
+        File first = saved.getAllValues().get(0);
+        File second = saved.getAllValues().get(1);
+        assertEquals(StorageCodec.GZIP, first.getCodec());
+        assertEquals(StorageCodec.GZIP, second.getCodec());
+        assertEquals(first.getFilePath(), second.getFilePath());
+        assertEquals(text.length(), first.getSize());
+
+        Path blob = Path.of(first.getFilePath());
+        assertTrue(Files.size(blob) < text.length() / 5);
+        try (InputStream in = StorageCodec.open(blob, StorageCodec.GZIP)) {
+            assertEquals(text, new String(in.readAllBytes()));
+        }
+
+        when(fileRepository.getFileById(1L, 1L)).thenReturn(first);
+        FileDto download = compressing.getUserFile(1L, 1L);
+        assertEquals(StorageCodec.GZIP, download.getCodec());
+        assertEquals(text.length(), download.getSize());
+
+        when(fileRepository.getBlobReferences(first.getContentHash())).thenReturn(0L);
+        compressing.deleteFile(1L, 1L);
+        assertFalse(Files.exists(blob));
+    }
+
+    @Test
+    @DisplayName("Should answer a current download from the row, without building the download")
+    void testConditionalDownload() throws IOException {
+        Path stored = Files.writeString(tempDir.resolve("stored"), "content");
+        File file = new File(5L, 1L, "a.txt", stored.toString(), 7L, "abc123");
+        when(fileRepository.getFileById(5L, 1L)).thenReturn(file);
+
+        Conditional<FileDto> fresh = fileService.getUserFile(1L, 5L, null, null);
+        assertEquals("\"abc123\"", fresh.getETag());
+        assertEquals(stored, fresh.getBody().getFilePath());
+
+        Conditional<FileDto> current = fileService.getUserFile(1L, 5L, fresh.getETag(), null);
+        assertTrue(current.isNotModified());
+        assertNull(current.getBody());
+        assertFalse(fileService.getUserFile(1L, 5L, "\"other\"", null).isNotModified());
+    }
+
+    @Test
+    @DisplayName("Should take Last-Modified from the row, not from the shared blob")
+    void testLastModifiedFromRow() throws IOException {
+        // The blob was stored long ago by someone else; this row was created just now
+        Path stored = Files.writeString(tempDir.resolve("shared"), "content");
+        Files.setLastModifiedTime(stored, FileTime.from(Instant.parse("2001-01-01T00:00:00Z")));
+        File file = new File(6L, 1L, "a.txt", stored.toString(), 7L, "def456");
+        file.setCreatedAt(Instant.parse("2024-05-01T12:00:00Z").toEpochMilli());
+        when(fileRepository.getFileById(6L, 1L)).thenReturn(file);
+
+        Conditional<FileDto> fresh = fileService.getUserFile(1L, 6L, null, null);
+        assertEquals(Instant.parse("2024-05-01T12:00:00Z"), fresh.getLastModified());
+        assertEquals(Instant.parse("2024-05-01T12:00:00Z"), fresh.getBody().getLastModified());
+        assertFalse(fileService.getUserFile(1L, 6L, null, "Wed, 01 Jan 2020 00:00:00 GMT").isNotModified());
+        assertTrue(fileService.getUserFile(1L, 6L, null, "Wed, 01 May 2024 12:00:00 GMT").isNotModified());
+    }
+
+    @Test
+    @DisplayName("Should report the same content type in the stat as the download")
+    void testStatMatchesDownload() throws IOException {
+        Path stored = Files.writeString(tempDir.resolve("blob.html"), "<html></html>");
+        File file = new File(7L, 1L, "page.txt", stored.toString(), 13L, "aaa111");
+        when(fileRepository.getFileById(7L, 1L)).thenReturn(file);
+
+        assertEquals(fileService.getUserFile(1L, 7L, null, null).getBody().getContentType(),
+                fileService.getUserFileStat(1L, 7L).getContentType());
+    }
+
+    @Test
+    @DisplayName("Should tag listings with the user's change counter and skip the query when unchanged")
+    void testConditionalListing() {
+        when(fileRepository.getUserFiles(1L)).thenReturn(List.of());
+        when(fileRepository.saveFile(any(File.class))).thenReturn(1L);
+
+        Conditional<List<File>> first = fileService.getUserFiles(1L, null);
+        assertTrue(first.getETag().startsWith("W/"));
+        assertTrue(fileService.getUserFiles(1L, first.getETag()).isNotModified());
+        verify(fileRepository, times(1)).getUserFiles(1L);
+
+        // Another user's upload leaves the tag alone, an upload of this user changes it
+        fileService.uploadFile(2L, new ByteArrayInputStream("other".getBytes()), "b.txt", -1);
+        assertTrue(fileService.getUserFiles(1L, first.getETag()).isNotModified());
+        fileService.uploadFile(1L, new ByteArrayInputStream("mine".getBytes()), "c.txt", -1);
+        Conditional<List<File>> changed = fileService.getUserFiles(1L, first.getETag());
+        assertFalse(changed.isNotModified());
+        assertNotEquals(first.getETag(), changed.getETag());
+    }
+
     @Test
     @DisplayName("Should get user files")
     void testGetUserFiles() {
@@ -112,4 +279,20 @@ public class FileServiceTest {
             fileService.getUserFile(userId, fileId);
         });
     }
+
+    @Test
+    @DisplayName("Should check ownership of all archived files in one query")
+    void testArchiveChecksOwnership() {
+        when(fileRepository.getUserFilesByIds(eq(1L), any())).thenReturn(List.of(
+                new File(2L, 1L, "b.txt", "uploads/b", 2L),
+                new File(1L, 1L, "a.txt", "uploads/a", 1L)));
+
+        FileArchiveDto archive = fileService.getUserFilesArchive(1L, List.of(1L, 2L, 1L));
+
+        assertEquals(List.of("a.txt", "b.txt"), archive.getFiles().stream().map(FileDto::getFileName).toList());
+        verify(fileRepository, times(1)).getUserFilesByIds(eq(1L), any());
+        verify(fileRepository, never()).getFileById(any(), any());
+
+        assertThrows(IllegalArgumentException.class, () -> fileService.getUserFilesArchive(1L, List.of(1L, 3L)));
+    }
 }
@@ -0,0 +1,231 @@
+package com.file_exchange.unit.services;
+
+import com.file_exchange.db.ConnectionPool;
+import com.file_exchange.db.DatabaseInitializer;
+import com.file_exchange.entity.UploadSession;
+import com.file_exchange.handlers.utilsFiles.TempFileInputStream;
+import com.file_exchange.repository.UploadSessionRepository;
+import com.file_exchange.services.FileService;
+import com.file_exchange.services.UploadService;
+import com.file_exchange.storage.BlobStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("UploadService tests")
+public class UploadServiceTest {
+    private Path dir;
+    private ConnectionPool pool;
+    private FileService fileService;
+    private UploadService uploadService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("upload-service-test");
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("test.db"), 2);
+        new DatabaseInitializer(pool).initialize();
+        fileService = mock(FileService.class);
+        uploadService = new UploadService(new UploadSessionRepository(pool), fileService,
+                dir.resolve("staging"), Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        pool.close();
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    @DisplayName("Should assemble chunks and hand the file to FileService")
+    void testChunkedUpload() {
+        UploadSession session = uploadService.createUpload(1L, "notes.txt", 11L);
+        uploadService.appendChunk(1L, session.getId(), 0, stream("hello "));
+        assertEquals(6, uploadService.getUpload(1L, session.getId()).getOffset());
+
+        // A retried chunk at a stale offset is refused instead of duplicating bytes
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadService.appendChunk(1L, session.getId(), 0, stream("hello ")));
+        assertThrows(IllegalArgumentException.class, () -> uploadService.completeUpload(1L, session.getId()));
+
+        uploadService.appendChunk(1L, session.getId(), 6, stream("world"));
+        when(fileService.uploadFile(eq(1L), any(TempFileInputStream.class), eq("notes.txt"), eq(11L))).thenAnswer(call -> {
+            TempFileInputStream assembled = call.getArgument(1);
+            assertEquals("hello world", Files.readString(assembled.getTempFilePath()));
+            return 42L;
+        });
+
+        assertEquals(42L, uploadService.completeUpload(1L, session.getId()));
+        assertThrows(IllegalArgumentException.class, () -> uploadService.getUpload(1L, session.getId()));
+    }
+
+    @Test
+    @DisplayName("Should keep the bytes of an interrupted chunk so the client can resume")
+    void testInterruptedChunk() {
+        UploadSession session = uploadService.createUpload(1L, "big.bin", null);
+        InputStream dropped = new InputStream() {
+            private int sent = 0;
+
+            @Override
+            public int read() throws IOException {
+                if (sent == 4) {
+                    throw new IOException("Connection reset");
+                }
+                return 'a' + sent++;
+            }
+        };
+
+        assertThrows(RuntimeException.class, () -> uploadService.appendChunk(1L, session.getId(), 0, dropped));
+        assertEquals(4, uploadService.getUpload(1L, session.getId()).getOffset());
+    }
+
+    @Test
+    @DisplayName("Should assemble parallel chunks sent out of order and check every checksum")
+    void testParallelUpload() throws Exception {
+        String content = "0123456789abcdefghijXYZ";
+        UploadSession session = uploadService.createUpload(1L, "parts.bin", (long) content.length(), 10L);
+        assertEquals(3, session.getChunkCount());
+
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<String>> puts = new ArrayList<>();
+            for (int index : new int[]{2, 0, 1}) {
+                String part = content.substring(index * 10, Math.min(content.length(), index * 10 + 10));
+                puts.add(pool.submit(() -> uploadService.putChunk(1L, session.getId(), index, sha256(part), stream(part))));
+            }
+            for (Future<String> put : puts) {
+                put.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(List.of(0L, 1L, 2L), uploadService.getReceivedChunks(1L, session.getId()));
+
+        // Wrong size and wrong checksum are refused, and the damaged slot has to be sent again
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadService.putChunk(1L, session.getId(), 2, null, stream("XY")));
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadService.putChunk(1L, session.getId(), 2, sha256("abc"), stream("XYZ")));
+        assertEquals(List.of(0L, 1L), uploadService.getReceivedChunks(1L, session.getId()));
+        assertThrows(IllegalArgumentException.class, () -> uploadService.completeUpload(1L, session.getId()));
+        uploadService.putChunk(1L, session.getId(), 2, sha256("XYZ"), stream("XYZ"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadService.completeUpload(1L, session.getId(), sha256("something else")));
+
+        when(fileService.uploadFile(eq(1L), any(TempFileInputStream.class), eq("parts.bin"), eq(23L))).thenAnswer(call -> {
+            TempFileInputStream assembled = call.getArgument(1);
+            assertEquals(content, Files.readString(assembled.getTempFilePath()));
+            assertEquals(sha256(content), assembled.getContentHash());
+            return 7L;
+        });
+        assertEquals(7L, uploadService.completeUpload(1L, session.getId(), sha256(content)));
+    }
+
+    @Test
+    @DisplayName("Should not complete a parallel upload with missing chunks")
+    void testParallelUploadIncomplete() {
+        UploadSession session = uploadService.createUpload(1L, "parts.bin", 20L, 10L);
+        uploadService.putChunk(1L, session.getId(), 1, null, stream("0123456789"));
+
+        assertThrows(IllegalArgumentException.class, () -> uploadService.completeUpload(1L, session.getId()));
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadService.putChunk(1L, session.getId(), 2, null, stream("0123456789")));
+    }
+
+    @Test
+    @DisplayName("Should end the session when storing consumed the staged data and failed")
+    void testFailedCompleteEndsSession() {
+        UploadSession session = uploadService.createUpload(1L, "notes.txt", 5L);
+        uploadService.appendChunk(1L, session.getId(), 0, stream("hello"));
+        when(fileService.uploadFile(eq(1L), any(TempFileInputStream.class), eq("notes.txt"), eq(5L))).thenAnswer(call -> {
+            TempFileInputStream assembled = call.getArgument(1);
+            Files.delete(assembled.getTempFilePath());
+            throw new IllegalArgumentException("Failed to upload file");
+        });
+
+        assertThrows(IllegalArgumentException.class, () -> uploadService.completeUpload(1L, session.getId()));
+        assertThrows(IllegalArgumentException.class, () -> uploadService.getUpload(1L, session.getId()));
+    }
+
+    @Test
+    @DisplayName("Should not abort an upload under a chunk in flight nor record chunks of a deleted one")
+    void testAbortWhileChunkInFlight() throws Exception {
+        UploadSession session = uploadService.createUpload(1L, "parts.bin", 20L, 10L);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InputStream slow = new InputStream() {
+            private final InputStream content = stream("0123456789");
+
+            @Override
+            public int read() throws IOException {
+                reading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return content.read();
+            }
+        };
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> put = executor.submit(() -> uploadService.putChunk(1L, session.getId(), 0, null, slow));
+            assertTrue(reading.await(5, TimeUnit.SECONDS));
+            assertThrows(IllegalArgumentException.class, () -> uploadService.abortUpload(1L, session.getId()));
+            release.countDown();
+            put.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        uploadService.abortUpload(1L, session.getId());
+        UploadSessionRepository repository = new UploadSessionRepository(pool);
+        assertFalse(repository.saveChunk(session.getId(), 1, sha256("0123456789"), Long.MAX_VALUE));
+        assertTrue(repository.getChunkIndexes(session.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should not expose sessions of other users")
+    void testSessionsAreScopedToUser() {
+        UploadSession session = uploadService.createUpload(1L, "a.txt", null);
+
+        assertThrows(IllegalArgumentException.class, () -> uploadService.getUpload(2L, session.getId()));
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadService.appendChunk(2L, session.getId(), 0, stream("x")));
+    }
+
+    private static String sha256(String content) {
+        MessageDigest digest = BlobStore.newDigest();
+        digest.update(content.getBytes());
+        return BlobStore.toHex(digest);
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes());
+    }
+}